@@ -131,7 +131,7 @@ class BattleShipGame extends JFrame {
         settingsPanel.setBorder(BorderFactory.createEmptyBorder(20, 50, 20, 50));
 
         settingsPanel.add(createStyledLabel("Уровень сложности:"));
-        JComboBox<String> difficulty = new JComboBox<>(new String[]{"Легкий", "Средний", "Сложный"});
+        JComboBox<String> difficulty = new JComboBox<>(ShotStrategies.names());
         difficulty.setSelectedItem(currentDifficulty);
         difficulty.setFont(new Font("Arial", Font.PLAIN, 16));
         difficulty.setBackground(Color.WHITE);
@@ -198,6 +198,7 @@ class BattleShipGame extends JFrame {
                     "Подтверждение",
                     JOptionPane.YES_NO_OPTION);
             if (result == JOptionPane.YES_OPTION) {
+                gameController.stopComputerTurn();
                 cardLayout.show(cardPanel, "START");
             }
         });
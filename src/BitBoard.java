@@ -0,0 +1,248 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Упакованное поле: одна клетка - один бит, индекс клетки = y * size + x.
+// Поле 10x10 занимает два long, для больших полей используется массив long.
+class BitBoard implements CellSet {
+    private final int size;
+    private final long[] words;
+    private final long[] masks; // маски "корабль + ореол" для полей до 128 клеток
+
+    public BitBoard(int size) {
+        this.size = size;
+        this.words = new long[(size * size + 63) >>> 6];
+        this.masks = words.length <= 2 ? ShipMasks.forBoard(size) : null;
+    }
+
+    @Override
+    public int getSize() { return size; }
+
+    @Override
+    public int index(int x, int y) {
+        return y * size + x;
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        return get(y * size + x);
+    }
+
+    @Override
+    public boolean get(int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    @Override
+    public void set(int x, int y) {
+        set(y * size + x);
+    }
+
+    @Override
+    public void set(int cell) {
+        words[cell >>> 6] |= 1L << cell;
+    }
+
+    @Override
+    public void clear(int cell) {
+        words[cell >>> 6] &= ~(1L << cell);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    public void copyFrom(BitBoard other) {
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    @Override
+    public BitBoard copy() {
+        BitBoard copy = new BitBoard(size);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    @Override
+    public void forEachSet(IntConsumer action) {
+        for (int i = 0; i < words.length; i++) {
+            for (long word = words[i]; word != 0; word &= word - 1) {
+                action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+            }
+        }
+    }
+
+    @Override
+    public long estimateFootprint() {
+        return 16 + 8L * words.length;
+    }
+
+    @Override
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Количество клеток, отмеченных одновременно в обоих полях (например, попадания = корабли & выстрелы)
+    public int intersectionCount(BitBoard other) {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] & other.words[i]);
+        }
+        return count;
+    }
+
+    // Первая клетка, отмеченная в этом поле и не отмеченная в other, или -1
+    public int firstAndNot(BitBoard other) {
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i] & ~other.words[i];
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    public boolean fits(int x, int y, int length, boolean horizontal) {
+        if (x < 0 || y < 0 || length <= 0) return false;
+        return horizontal ? x + length <= size && y < size : y + length <= size && x < size;
+    }
+
+    // Корабль можно поставить, если он помещается на поле и не касается других кораблей
+    @Override
+    public boolean canPlaceShip(int x, int y, int length, boolean horizontal) {
+        if (!fits(x, y, length, horizontal)) return false;
+
+        if (masks != null) {
+            int halo = ShipMasks.offset(size, length, horizontal, y * size + x) + 2;
+            long hit = words[0] & masks[halo];
+            if (words.length > 1) {
+                hit |= words[1] & masks[halo + 1];
+            }
+            return hit == 0;
+        }
+
+        // Большое поле: ореол состоит из нескольких непрерывных отрезков строк
+        int fromX = Math.max(0, x - 1);
+        int fromY = Math.max(0, y - 1);
+        if (horizontal) {
+            int toX = Math.min(size - 1, x + length);
+            int toY = Math.min(size - 1, y + 1);
+            for (int row = fromY; row <= toY; row++) {
+                if (!rangeEmpty(row * size + fromX, row * size + toX)) return false;
+            }
+        } else {
+            int toX = Math.min(size - 1, x + 1);
+            int toY = Math.min(size - 1, y + length);
+            for (int row = fromY; row <= toY; row++) {
+                if (!rangeEmpty(row * size + fromX, row * size + toX)) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void placeShip(int x, int y, int length, boolean horizontal) {
+        if (masks != null) {
+            int ship = ShipMasks.offset(size, length, horizontal, y * size + x);
+            words[0] |= masks[ship];
+            if (words.length > 1) {
+                words[1] |= masks[ship + 1];
+            }
+            return;
+        }
+        int cell = y * size + x;
+        int step = horizontal ? 1 : size;
+        for (int i = 0; i < length; i++, cell += step) {
+            set(cell);
+        }
+    }
+
+    @Override
+    public void removeShip(int x, int y, int length, boolean horizontal) {
+        if (masks != null) {
+            int ship = ShipMasks.offset(size, length, horizontal, y * size + x);
+            words[0] &= ~masks[ship];
+            if (words.length > 1) {
+                words[1] &= ~masks[ship + 1];
+            }
+            return;
+        }
+        int cell = y * size + x;
+        int step = horizontal ? 1 : size;
+        for (int i = 0; i < length; i++, cell += step) {
+            clear(cell);
+        }
+    }
+
+    // Проверка, что в диапазоне клеток [from, to] нет ни одного установленного бита
+    private boolean rangeEmpty(int from, int to) {
+        int first = from >>> 6;
+        int last = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (first == last) {
+            return (words[first] & firstMask & lastMask) == 0;
+        }
+        if ((words[first] & firstMask) != 0) return false;
+        for (int i = first + 1; i < last; i++) {
+            if (words[i] != 0) return false;
+        }
+        return (words[last] & lastMask) == 0;
+    }
+}
+
+// Заранее посчитанные маски кораблей и их ореолов для полей, помещающихся в два long.
+// Для каждой длины, ориентации и клетки хранится четыре long: корабль (2) и корабль с ореолом (2).
+final class ShipMasks {
+    private static final int MAX_SIZE = 11; // 11 * 11 = 121 клетка - последний размер, влезающий в 128 бит
+    private static final long[][] CACHE = new long[MAX_SIZE + 1][];
+
+    private ShipMasks() {
+    }
+
+    static synchronized long[] forBoard(int size) {
+        if (size > MAX_SIZE) return null;
+        if (CACHE[size] == null) {
+            CACHE[size] = build(size);
+        }
+        return CACHE[size];
+    }
+
+    static int offset(int size, int length, boolean horizontal, int cell) {
+        return ((((length - 1) << 1) | (horizontal ? 0 : 1)) * size * size + cell) << 2;
+    }
+
+    private static long[] build(int size) {
+        int cells = size * size;
+        long[] masks = new long[size * 2 * cells * 4];
+        for (int length = 1; length <= size; length++) {
+            for (int h = 0; h < 2; h++) {
+                boolean horizontal = h == 0;
+                for (int y = 0; y < size; y++) {
+                    for (int x = 0; x < size; x++) {
+                        int base = offset(size, length, horizontal, y * size + x);
+                        int endX = horizontal ? x + length - 1 : x;
+                        int endY = horizontal ? y : y + length - 1;
+                        if (endX >= size || endY >= size) continue;
+                        for (int cy = y - 1; cy <= endY + 1; cy++) {
+                            for (int cx = x - 1; cx <= endX + 1; cx++) {
+                                if (cx < 0 || cy < 0 || cx >= size || cy >= size) continue;
+                                int cell = cy * size + cx;
+                                boolean onShip = cx >= x && cx <= endX && cy >= y && cy <= endY;
+                                if (onShip) {
+                                    masks[base + (cell >>> 6)] |= 1L << cell;
+                                }
+                                masks[base + 2 + (cell >>> 6)] |= 1L << cell;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return masks;
+    }
+}
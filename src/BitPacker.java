@@ -0,0 +1,106 @@
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+// Побитовая запись и чтение поверх ByteBuffer, младшие биты первыми. Обращения к буферу абсолютные,
+// поэтому читать можно прямо из direct- или отображенного буфера без копирования.
+// Позиция буфера сдвигается только в finish().
+final class BitPacker {
+    private final ByteBuffer buffer;
+    private int position;
+    private long bits;
+    private int count;
+
+    BitPacker(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+    }
+
+    // Число бит, достаточное для значений 0..max
+    static int bitsFor(long max) {
+        return Math.max(1, 64 - Long.numberOfLeadingZeros(max));
+    }
+
+    void write(long value, int width) {
+        if (width > 32) {
+            write(value, 32);
+            write(value >>> 32, width - 32);
+            return;
+        }
+        bits |= (value & ((1L << width) - 1)) << count;
+        count += width;
+        while (count >= 8) {
+            if (position >= buffer.limit()) throw new BufferOverflowException();
+            buffer.put(position++, (byte) bits);
+            bits >>>= 8;
+            count -= 8;
+        }
+    }
+
+    void writeBoolean(boolean value) {
+        write(value ? 1 : 0, 1);
+    }
+
+    // Группы по 7 бит с битом продолжения
+    void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            write((value & 0x7F) | 0x80, 8);
+            value >>>= 7;
+        }
+        write(value, 8);
+    }
+
+    long read(int width) {
+        if (width > 32) {
+            long low = read(32);
+            return low | read(width - 32) << 32;
+        }
+        while (count < width) {
+            if (position >= buffer.limit()) throw new BufferUnderflowException();
+            bits |= (buffer.get(position++) & 0xFFL) << count;
+            count += 8;
+        }
+        long value = bits & ((1L << width) - 1);
+        bits >>>= width;
+        count -= width;
+        return value;
+    }
+
+    int readInt(int width) {
+        return (int) read(width);
+    }
+
+    boolean readBoolean() {
+        return read(1) != 0;
+    }
+
+    long readVarint() {
+        long value = 0;
+        int shift = 0;
+        long b;
+        do {
+            b = read(8);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // Дописывает неполный последний байт и ставит позицию буфера за записанным
+    void finishWrite() {
+        if (count > 0) {
+            if (position >= buffer.limit()) throw new BufferOverflowException();
+            buffer.put(position++, (byte) bits);
+            bits = 0;
+            count = 0;
+        }
+        buffer.position(position);
+    }
+
+    // Ставит позицию буфера за прочитанным; недочитанные биты последнего байта - выравнивание
+    void finishRead() {
+        bits = 0;
+        count = 0;
+        buffer.position(position);
+    }
+}
@@ -0,0 +1,226 @@
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+
+// Рисование поля без Swing: сетка с подписями и клетки по состояниям. Общее для GameBoardPanel
+// и безинтерфейсного BoardRenderer. Экземпляр - раскладка поля в окне просмотра BoardViewport;
+// без увеличения поле по центру, по краям место под подписи. Рисуется только видимая часть поля
+final class BoardPainter {
+    // Состояния клетки
+    static final byte EMPTY = 0;
+    static final byte SHIP = 1;
+    static final byte MISS = 2;
+    static final byte HIT = 3;      // попадание по невидимому кораблю противника
+    static final byte SHIP_HIT = 4; // попадание по своему кораблю
+    static final int STATES = 5;
+
+    static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 12);
+    static final Font HIT_FONT = new Font("Arial", Font.BOLD, 14);
+    static final BasicStroke GRID_STROKE = new BasicStroke(1.5f);
+    // Подписи реже, чем через столько пикселей, наползали бы друг на друга
+    private static final int LABEL_SPACING = 24;
+    // Место под подписи у края панели, когда поле сдвинуто под них
+    private static final int LABEL_STRIP = 18;
+    private static final int LETTERS = 32; // А..Я без Ё
+
+    private final ColorTheme theme;
+    private final BoardViewport viewport;
+    private final int boardSize;
+    private final int width;
+    private final int height;
+    private final int cellSize;
+    private final int offsetX;
+    private final int offsetY;
+
+    BoardPainter(ColorTheme theme, int boardSize, int width, int height) {
+        this(theme, new BoardViewport(width, height, boardSize));
+    }
+
+    BoardPainter(ColorTheme theme, BoardViewport viewport) {
+        this.theme = theme;
+        this.viewport = viewport;
+        this.boardSize = viewport.getBoardSize();
+        this.width = viewport.getWidth();
+        this.height = viewport.getHeight();
+        this.cellSize = viewport.getCellSize();
+        this.offsetX = viewport.left(0);
+        this.offsetY = viewport.top(0);
+    }
+
+    static byte cellState(boolean ship, boolean shot, boolean showShips) {
+        if (shot) {
+            return !ship ? MISS : showShips ? SHIP_HIT : HIT;
+        }
+        return ship && showShips ? SHIP : EMPTY;
+    }
+
+    // Подпись столбца: буквы, пока их хватает, дальше - номера
+    static String columnLabel(int x, int boardSize) {
+        return boardSize <= LETTERS ? String.valueOf((char) ('А' + x)) : String.valueOf(x + 1);
+    }
+
+    public int getCellSize() { return cellSize; }
+    public int getOffsetX() { return offsetX; }
+    public int getOffsetY() { return offsetY; }
+
+    // Фон, сетка и подписи координат видимой части поля
+    void paintBackground(Graphics2D g2d) {
+        g2d.setColor(theme.boardBackground);
+        g2d.fillRect(0, 0, width, height);
+
+        int firstX = viewport.firstVisibleX();
+        int lastX = viewport.lastVisibleX();
+        int firstY = viewport.firstVisibleY();
+        int lastY = viewport.lastVisibleY();
+        if (firstX > lastX || firstY > lastY) return;
+        int left = viewport.left(firstX);
+        int right = viewport.left(lastX + 1);
+        int top = viewport.top(firstY);
+        int bottom = viewport.top(lastY + 1);
+
+        // Рисование сетки; мельче клетки - только рамка поля
+        g2d.setColor(theme.gridColor);
+        g2d.setStroke(GRID_STROKE);
+        if (viewport.isCellMode()) {
+            int columns = lastX + 1 - firstX;
+            int rows = lastY + 1 - firstY;
+            for (int i = 0; i <= Math.max(columns, rows); i++) {
+                if (i <= columns) {
+                    g2d.drawLine(viewport.left(firstX + i), top, viewport.left(firstX + i), bottom);
+                }
+                if (i <= rows) {
+                    g2d.drawLine(left, viewport.top(firstY + i), right, viewport.top(firstY + i));
+                }
+            }
+        } else {
+            g2d.drawRect(left, top, right - left, bottom - top);
+        }
+
+        // У увеличенного поля подписи рисуются поверх клеток (paintLabels)
+        if (!viewport.isZoomed()) {
+            paintLabels(g2d);
+        }
+    }
+
+    // Подписи координат видимой части поля; если они не помещаются у каждой клетки - через 2, 5, 10, 20...
+    // Когда увеличенное поле сдвинуто под подписи, они остаются у края панели на своей полосе
+    void paintLabels(Graphics2D g2d) {
+        int firstX = viewport.firstVisibleX();
+        int lastX = viewport.lastVisibleX();
+        int firstY = viewport.firstVisibleY();
+        int lastY = viewport.lastVisibleY();
+        if (firstX > lastX || firstY > lastY) return;
+
+        int digits = String.valueOf(boardSize).length();
+        int step = labelStep(Math.max(LABEL_SPACING, digits * 8 + 8) / viewport.getScale());
+        int labelY = offsetY - 5;
+        int labelX = offsetX - 15 - 7 * Math.max(0, digits - 2);
+        if (!viewport.isZoomed()) {
+            labelX = Math.max(labelX, 2);
+        }
+        if (viewport.isZoomed() && labelY < LABEL_STRIP - 4) {
+            g2d.setColor(theme.boardBackground);
+            g2d.fillRect(0, 0, width, LABEL_STRIP);
+            labelY = LABEL_STRIP - 4;
+        }
+        if (viewport.isZoomed() && labelX < 2) {
+            g2d.setColor(theme.boardBackground);
+            g2d.fillRect(0, LABEL_STRIP, 7 * Math.max(2, digits) + 4, height);
+            labelX = 2;
+        }
+        g2d.setColor(theme.gridColor);
+        g2d.setFont(LABEL_FONT);
+        int half = (int) (viewport.getScale() / 2);
+        for (int x = (firstX + step) / step * step - 1; x <= lastX; x += step) {
+            g2d.drawString(columnLabel(x, boardSize), viewport.left(x) + half - 3, labelY);
+        }
+        for (int y = (firstY + step) / step * step - 1; y <= lastY; y += step) {
+            if (viewport.top(y) + half + 3 < LABEL_STRIP + 8 && viewport.isZoomed()) continue;
+            g2d.drawString(String.valueOf(y + 1), labelX, viewport.top(y) + half + 3);
+        }
+    }
+
+    // Шаг подписей из ряда 1, 2, 5, 10, 20, 50... не меньше step
+    private static int labelStep(double step) {
+        for (int base = 1; ; base *= 10) {
+            for (int multiplier : new int[]{1, 2, 5}) {
+                if (base * multiplier >= step) return base * multiplier;
+            }
+        }
+    }
+
+    // Содержимое одной клетки; левый верхний угол клетки - в начале координат
+    void paintCell(Graphics2D g2d, byte state) {
+        // Мелкая клетка - сплошная заливка цветом состояния
+        if (!viewport.isCellMode()) {
+            g2d.setColor(state == SHIP ? theme.primaryButtonColor : state == MISS ? Color.BLUE : Color.RED);
+            g2d.fillRect(0, 0, cellSize, cellSize);
+            return;
+        }
+        int cellX = 1;
+        int cellY = 1;
+        int drawSize = cellSize - 2;
+        g2d.setStroke(GRID_STROKE);
+
+        // Корабли игрока (только на своем поле)
+        if (state == SHIP || state == SHIP_HIT) {
+            g2d.setColor(theme.primaryButtonColor);
+            g2d.fillRect(cellX + 2, cellY + 2, drawSize - 4, drawSize - 4);
+
+            g2d.setColor(theme.gridColor);
+            g2d.drawRect(cellX + 2, cellY + 2, drawSize - 4, drawSize - 4);
+        }
+
+        // Выстрелы
+        if (state == HIT || state == SHIP_HIT) {
+            g2d.setColor(Color.RED);
+            g2d.fillOval(cellX + 5, cellY + 5, drawSize - 10, drawSize - 10);
+            g2d.setColor(Color.WHITE);
+            g2d.setFont(HIT_FONT);
+            g2d.drawString("✕", cellX + cellSize/2 - 5, cellY + cellSize/2 + 5);
+        } else if (state == MISS) {
+            g2d.setColor(Color.BLUE);
+            g2d.drawOval(cellX + 5, cellY + 5, drawSize - 10, drawSize - 10);
+            g2d.setFont(LABEL_FONT);
+            g2d.drawString("•", cellX + cellSize/2 - 3, cellY + cellSize/2 + 3);
+        }
+    }
+
+    // Видимая часть поля: ships - корабли, shots - выстрелы по ним; showShips - показывать нетронутые корабли
+    void paintBoard(Graphics2D g2d, CellSet ships, CellSet shots, boolean showShips) {
+        paintBackground(g2d);
+        AffineTransform transform = g2d.getTransform();
+        if (!viewport.isCellMode()) {
+            // Мелкие клетки: видно почти все поле, поэтому обходятся только отмеченные клетки множеств,
+            // а не вся площадь. Выстрелы рисуются поверх соседних кораблей
+            if (showShips) {
+                ships.forEachSet(cell -> {
+                    if (!shots.get(cell)) {
+                        paintVisibleCell(g2d, transform, cell, SHIP);
+                    }
+                });
+            }
+            shots.forEachSet(cell -> paintVisibleCell(g2d, transform, cell,
+                    cellState(ships.get(cell), true, showShips)));
+            return;
+        }
+        for (int y = viewport.firstVisibleY(); y <= viewport.lastVisibleY(); y++) {
+            for (int x = viewport.firstVisibleX(); x <= viewport.lastVisibleX(); x++) {
+                int cell = y * boardSize + x;
+                byte state = cellState(ships.get(cell), shots.get(cell), showShips);
+                if (state == EMPTY) continue;
+                g2d.translate(viewport.left(x), viewport.top(y));
+                paintCell(g2d, state);
+                g2d.setTransform(transform);
+            }
+        }
+    }
+
+    private void paintVisibleCell(Graphics2D g2d, AffineTransform transform, int cell, byte state) {
+        int x = cell % boardSize;
+        int y = cell / boardSize;
+        if (!viewport.isVisible(x, y)) return;
+        g2d.translate(viewport.left(x), viewport.top(y));
+        paintCell(g2d, state);
+        g2d.setTransform(transform);
+    }
+}
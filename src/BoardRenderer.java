@@ -0,0 +1,134 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+// Отрисовка полей в PNG без Swing - миниатюры законченных партий и снимки для зрителей на сервере.
+// Работает при java.awt.headless=true. Рисует тот же BoardPainter, что и GameBoardPanel, но тема
+// задается явно. Потокобезопасен: у каждого потока свои изображение, буфер байт и кодировщик PNG,
+// которые переиспользуются от картинки к картинке.
+// Пакетный прогон рисует снимки сыгранных партий на всех ядрах и считает картинки в секунду:
+//   java -Djava.awt.headless=true BoardRenderer [партий] [потоков] [размер картинки] [тема] [каталог или -] [зерно]
+class BoardRenderer {
+    private final ColorTheme theme;
+    private final int width;
+    private final int height;
+    private final ThreadLocal<Buffers> buffers;
+
+    public BoardRenderer(ColorTheme theme, int width, int height) {
+        this.theme = theme;
+        this.width = width;
+        this.height = height;
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(width, height));
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+        ColorTheme theme = args.length > 3 ? ColorTheme.fromDisplayName(args[3]) : ColorTheme.STANDARD;
+        Path directory = args.length > 4 && !args[4].equals("-") ? Path.of(args[4]) : null;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : ThreadLocalRandom.current().nextLong();
+
+        System.out.printf("Партий: %d, потоков: %d, картинка: %dx%d, тема: %s, зерно: %d%n",
+                games, threads, size, size, theme.displayName, seed);
+        BoardRenderer renderer = new BoardRenderer(theme, size, size);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // Партии хранятся снимками, как на сервере; замеряются подъем снимка, отрисовка и сжатие
+            byte[][] snapshots = new byte[games][];
+            pool.submit(() -> IntStream.range(0, games).parallel()
+                    .forEach(i -> snapshots[i] = playSnapshot(GameRandom.streamSeed(seed, i)))).get();
+
+            LongAdder bytes = new LongAdder();
+            long start = System.nanoTime();
+            pool.submit(() -> IntStream.range(0, games).parallel().forEach(i -> {
+                GameModel model = GameModel.readSnapshot(ByteBuffer.wrap(snapshots[i]));
+                byte[] png = renderer.render(model, true, true);
+                bytes.add(png.length);
+                if (directory != null) {
+                    try {
+                        Files.write(directory.resolve(String.format("game-%06d.png", i)), png);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            })).get();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Картинок: %d за %.2f сек, %.0f картинок/сек, в среднем %d байт%n",
+                    games, seconds, games / seconds, games == 0 ? 0 : bytes.sum() / games);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Поле игрока (корабли игрока и выстрелы компьютера) или поле компьютера;
+    // showShips - показывать нетронутые корабли, иначе видны только попадания
+    public byte[] render(GameModel model, boolean playerSide, boolean showShips) {
+        return playerSide
+                ? render(model.getBoardSize(), model.getPlayerShips(), model.getComputerShotBits(), showShips)
+                : render(model.getBoardSize(), model.getComputerShips(), model.getPlayerShotBits(), showShips);
+    }
+
+    public byte[] render(int boardSize, CellSet ships, CellSet shots, boolean showShips) {
+        Buffers buffers = this.buffers.get();
+        Graphics2D g2d = buffers.image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            new BoardPainter(theme, boardSize, width, height).paintBoard(g2d, ships, shots, showShips);
+        } finally {
+            g2d.dispose();
+        }
+        return buffers.encode();
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    private static byte[] playSnapshot(long seed) {
+        GameModel model = new GameModel(GameConfig.CLASSIC, seed);
+        GameSimulator.playGame(model, seed, "Сложный", "Эксперт", true, new GameSimulator.SimulationStats());
+        ByteBuffer buffer = ByteBuffer.allocate(model.getMaxSnapshotSize());
+        model.writeSnapshot(buffer);
+        byte[] snapshot = new byte[buffer.flip().remaining()];
+        buffer.get(snapshot);
+        return snapshot;
+    }
+
+    // Буферы одного потока
+    private static final class Buffers {
+        final BufferedImage image;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+
+        Buffers(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        byte[] encode() {
+            bytes.reset();
+            try (ImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+                writer.setOutput(out);
+                writer.write(image);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                writer.reset();
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+// Окно просмотра поля в панели: масштаб (пикселей на клетку) и положение поля в пикселях панели.
+// Без увеличения поле вписано в панель целиком с местом под подписи, как раньше; колесо мыши увеличивает
+// вокруг курсора, перетаскивание сдвигает. Перевод точки в клетку и клетки в точку - O(1), видимый
+// диапазон клеток - чтобы рисовать только то, что на экране.
+// Уровни детализации: от MIN_CELL_PIXELS клетка рисуется целиком с сеткой, от пикселя - заливкой,
+// мельче - плитками плотности
+final class BoardViewport {
+    static final int MIN_CELL_PIXELS = 4;
+    static final int MAX_CELL_PIXELS = 64;
+    private static final double ZOOM_STEP = 1.25;
+    private static final int PAN_MARGIN = 20; // поле нельзя увести за край дальше, чем на место под подписи
+
+    private int width = 1;
+    private int height = 1;
+    private int boardSize = 1;
+    private double zoom = 1; // 1 - поле целиком
+    private double scale = 1;
+    private double originX;
+    private double originY;
+    private int version;
+
+    BoardViewport() {
+    }
+
+    BoardViewport(int width, int height, int boardSize) {
+        setBounds(width, height, boardSize);
+    }
+
+    // Размер панели и поля; при смене поля увеличение сбрасывается, при смене размера панели
+    // в центре остается та же точка поля
+    void setBounds(int width, int height, int boardSize) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (width == this.width && height == this.height && boardSize == this.boardSize && version > 0) return;
+        double centerX = boardX(this.width / 2.0);
+        double centerY = boardY(this.height / 2.0);
+        if (boardSize != this.boardSize) {
+            zoom = 1;
+        }
+        this.width = width;
+        this.height = height;
+        this.boardSize = boardSize;
+        layout(centerX, centerY);
+    }
+
+    // Увеличение (steps > 0) или уменьшение вокруг точки панели; точка поля под курсором остается на месте
+    boolean zoomAt(int px, int py, double steps) {
+        double updated = Math.max(1, Math.min(maxZoom(), zoom * Math.pow(ZOOM_STEP, steps)));
+        if (updated == zoom) return false;
+        double x = boardX(px);
+        double y = boardY(py);
+        zoom = updated;
+        double newScale = scaleFor(zoom);
+        layout(x + (width / 2.0 - px) / newScale, y + (height / 2.0 - py) / newScale);
+        return true;
+    }
+
+    // Сдвиг на dx, dy пикселей; без увеличения поле помещается целиком и не сдвигается
+    boolean panBy(int dx, int dy) {
+        if (zoom == 1) return false;
+        double x = originX;
+        double y = originY;
+        layout(boardX(width / 2.0 - dx), boardY(height / 2.0 - dy));
+        return x != originX || y != originY;
+    }
+
+    void reset() {
+        zoom = 1;
+        layout(boardSize / 2.0, boardSize / 2.0);
+    }
+
+    private void layout(double centerX, double centerY) {
+        scale = scaleFor(zoom);
+        if (zoom == 1) {
+            originX = Math.floor((width - scale * boardSize) / 2);
+            originY = Math.floor((height - scale * boardSize) / 2);
+        } else {
+            originX = clamp(width / 2.0 - centerX * scale, width);
+            originY = clamp(height / 2.0 - centerY * scale, height);
+        }
+        if (isCellMode()) {
+            originX = Math.round(originX);
+            originY = Math.round(originY);
+        }
+        version++;
+    }
+
+    private double clamp(double origin, int extent) {
+        double span = scale * boardSize;
+        if (span + 2 * PAN_MARGIN <= extent) {
+            return Math.floor((extent - span) / 2);
+        }
+        return Math.max(extent - span - PAN_MARGIN, Math.min(PAN_MARGIN, origin));
+    }
+
+    // Клетки целого числа пикселей остаются целыми и при увеличении, чтобы сетка не расплывалась
+    private double scaleFor(double zoom) {
+        // По клетке с каждой стороны под подписи, но не меньше PAN_MARGIN пикселей
+        int extent = Math.min(width, height);
+        double fit = Math.min(extent / (double) (boardSize + 2),
+                Math.max(1, extent - 2 * PAN_MARGIN) / (double) boardSize);
+        if (fit >= MIN_CELL_PIXELS) {
+            fit = Math.floor(fit);
+        }
+        double scaled = fit * zoom;
+        return scaled >= MIN_CELL_PIXELS ? Math.floor(scaled) : scaled;
+    }
+
+    private double maxZoom() {
+        return Math.max(1, MAX_CELL_PIXELS / scaleFor(1));
+    }
+
+    private double boardX(double px) { return (px - originX) / scale; }
+    private double boardY(double py) { return (py - originY) / scale; }
+
+    // Клетка целиком с сеткой и подписями
+    boolean isCellMode() { return scale >= MIN_CELL_PIXELS; }
+    // Меньше пикселя на клетку - клетки сводятся в плитки плотности
+    boolean isTileMode() { return scale < 1; }
+    boolean isZoomed() { return zoom > 1; }
+
+    double getScale() { return scale; }
+    // Сторона клетки в пикселях, не меньше одного
+    int getCellSize() { return Math.max(1, (int) Math.ceil(scale)); }
+    int getBoardSize() { return boardSize; }
+    int getWidth() { return width; }
+    int getHeight() { return height; }
+    // Меняется при любом изменении окна - ключ кэша отрисовки
+    int getVersion() { return version; }
+
+    // Левая (верхняя) граница клетки в пикселях панели; для x = boardSize - правый край поля
+    int left(int x) { return (int) Math.floor(originX + x * scale); }
+    int top(int y) { return (int) Math.floor(originY + y * scale); }
+
+    // Столбец (строка) под точкой панели; может быть вне поля
+    int cellX(int px) { return (int) Math.floor(boardX(px)); }
+    int cellY(int py) { return (int) Math.floor(boardY(py)); }
+
+    // Клетка под точкой: индекс y * boardSize + x или -1, если точка вне поля
+    int cellAt(int px, int py) {
+        int x = cellX(px);
+        int y = cellY(py);
+        return x >= 0 && x < boardSize && y >= 0 && y < boardSize ? y * boardSize + x : -1;
+    }
+
+    // Видимый диапазон клеток включительно; first > last, если поле не видно
+    int firstVisibleX() { return Math.max(0, cellX(0)); }
+    int lastVisibleX() { return Math.min(boardSize - 1, cellX(width - 1)); }
+    int firstVisibleY() { return Math.max(0, cellY(0)); }
+    int lastVisibleY() { return Math.min(boardSize - 1, cellY(height - 1)); }
+
+    boolean isVisible(int x, int y) {
+        return x >= firstVisibleX() && x <= lastVisibleX() && y >= firstVisibleY() && y <= lastVisibleY();
+    }
+}
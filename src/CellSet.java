@@ -0,0 +1,50 @@
+import java.util.function.IntConsumer;
+
+// Множество клеток квадратного поля (корабли или выстрелы одной стороны).
+// Плотная реализация - BitBoard, для огромных полей - SparseCellSet, память которого
+// растет с числом отмеченных клеток, а не с площадью поля.
+interface CellSet {
+    int getSize();
+
+    boolean get(int cell);
+
+    void set(int cell);
+
+    void clear(int cell);
+
+    void clear();
+
+    int cardinality();
+
+    boolean canPlaceShip(int x, int y, int length, boolean horizontal);
+
+    void placeShip(int x, int y, int length, boolean horizontal);
+
+    void removeShip(int x, int y, int length, boolean horizontal);
+
+    // Независимая копия - снимок для расчета в другом потоке
+    CellSet copy();
+
+    // Обход отмеченных клеток (в любом порядке) без проверки каждой клетки поля
+    void forEachSet(IntConsumer action);
+
+    // Примерный объем в куче, байт (для бюджета памяти SessionStore)
+    long estimateFootprint();
+
+    default boolean get(int x, int y) {
+        return get(y * getSize() + x);
+    }
+
+    default void set(int x, int y) {
+        set(y * getSize() + x);
+    }
+
+    default int index(int x, int y) {
+        return y * getSize() + x;
+    }
+
+    static CellSet create(GameConfig config) {
+        int size = config.getBoardSize();
+        return config.isSparse() ? new SparseCellSet(size) : new BitBoard(size);
+    }
+}
@@ -0,0 +1,252 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// Вероятностная карта для ИИ: для каждой клетки считается, сколькими допустимыми расстановками
+// оставшихся кораблей она покрыта. После каждого выстрела меняются только расстановки,
+// проходящие через эту клетку, поэтому карта не пересчитывается с нуля.
+class DensityTargeting {
+    // Расстановки, проходящие через недобитые попадания, важнее любых других
+    private static final long HIT_WEIGHT = 1L << 20;
+
+    private final int size;
+    private final int[] lengths;      // различные длины кораблей флота
+    private final int[] fleetCount;   // сколько кораблей каждой длины во флоте
+    private final int[] remaining;    // сколько из них еще не потоплено
+    private final int[][] density;    // [длина][клетка] - число допустимых расстановок через клетку
+    private final int[][] hitDensity; // [длина][клетка] - то же, взвешенное числом попаданий в расстановке
+    private final boolean[][] valid;  // [длина][анкер * 2 + вертикаль]
+    private final boolean[] blocked;  // клетки, где корабля точно нет (промахи, ореолы, потопленные)
+    private final boolean[] hits;     // попадания в еще не потопленные корабли
+    private boolean active;
+
+    public DensityTargeting(int size, int[] shipSizes) {
+        this.size = size;
+        int[] sorted = shipSizes.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        lengths = Arrays.copyOf(sorted, distinct);
+        fleetCount = new int[distinct];
+        for (int shipSize : shipSizes) {
+            fleetCount[Arrays.binarySearch(lengths, shipSize)]++;
+        }
+
+        int cells = size * size;
+        remaining = new int[distinct];
+        density = new int[distinct][cells];
+        hitDensity = new int[distinct][cells];
+        valid = new boolean[distinct][cells * 2];
+        blocked = new boolean[cells];
+        hits = new boolean[cells];
+    }
+
+    public void reset() {
+        active = false;
+    }
+
+    // Примерный объем в куче, байт: карты по длинам и флаги клеток
+    public long estimateFootprint() {
+        long cells = (long) size * size;
+        return lengths.length * (cells * 4 * 2 + cells * 2) + cells * 2;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    // Строит карту по уже сделанным выстрелам; дальше она поддерживается через onShot
+    public void activate(CellSet shots, Fleet fleet) {
+        int cells = size * size;
+        Arrays.fill(blocked, false);
+        Arrays.fill(hits, false);
+        System.arraycopy(fleetCount, 0, remaining, 0, remaining.length);
+        for (int li = 0; li < lengths.length; li++) {
+            int length = lengths[li];
+            Arrays.fill(density[li], 0);
+            Arrays.fill(hitDensity[li], 0);
+            for (int anchor = 0; anchor < cells; anchor++) {
+                for (int v = 0; v < 2; v++) {
+                    boolean fits = v == 0 ? anchor % size + length <= size : anchor / size + length <= size;
+                    valid[li][anchor * 2 + v] = fits;
+                    if (fits) {
+                        addToCells(density[li], anchor, length, v, 1);
+                    }
+                }
+            }
+        }
+
+        for (int cell = 0; cell < cells; cell++) {
+            if (!shots.get(cell)) continue;
+            if (fleet.shipAt(cell) >= 0) {
+                addHit(cell);
+            } else {
+                block(cell);
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            if (hits[cell] && fleet.isSunk(fleet.shipAt(cell))) {
+                sink(cell);
+            }
+        }
+        active = true;
+    }
+
+    public void onShot(int cell, boolean hit, boolean sunk) {
+        if (!hit) {
+            block(cell);
+            return;
+        }
+        addHit(cell);
+        if (sunk) {
+            sink(cell);
+        }
+    }
+
+    // Клетка с наибольшей плотностью среди неизвестных; при равенстве - случайная из лучших
+    public int nextShot(Random random) {
+        int cells = size * size;
+        long best = -1;
+        int bestCell = -1;
+        int ties = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (blocked[cell] || hits[cell]) continue;
+
+            long score = 0;
+            for (int li = 0; li < lengths.length; li++) {
+                if (remaining[li] == 0) continue;
+                score += remaining[li] * (density[li][cell] + HIT_WEIGHT * hitDensity[li][cell]);
+            }
+
+            if (score > best) {
+                best = score;
+                bestCell = cell;
+                ties = 1;
+            } else if (score == best && random.nextInt(++ties) == 0) {
+                bestCell = cell;
+            }
+        }
+        return bestCell;
+    }
+
+    private void addHit(int cell) {
+        hits[cell] = true;
+        forEachValidPlacement(cell, 1);
+
+        // По правилам корабли не касаются углами, значит диагональные соседи попадания пусты
+        int x = cell % size;
+        int y = cell / size;
+        for (int dy = -1; dy <= 1; dy += 2) {
+            for (int dx = -1; dx <= 1; dx += 2) {
+                int nx = x + dx;
+                int ny = y + dy;
+                if (nx >= 0 && ny >= 0 && nx < size && ny < size) {
+                    block(ny * size + nx);
+                }
+            }
+        }
+    }
+
+    private void sink(int cell) {
+        int x = cell % size;
+        int y = cell / size;
+        boolean horizontal = (x > 0 && hits[cell - 1]) || (x + 1 < size && hits[cell + 1]);
+        int step = horizontal ? 1 : size;
+
+        int start = cell;
+        while ((horizontal ? start % size > 0 : start >= size) && hits[start - step]) {
+            start -= step;
+        }
+        int length = 0;
+        for (int c = start; c < size * size && hits[c]; c += step) {
+            length++;
+            if (horizontal && (c + 1) % size == 0) break;
+        }
+
+        int li = Arrays.binarySearch(lengths, length);
+        if (li >= 0 && remaining[li] > 0) {
+            remaining[li]--;
+        }
+
+        for (int i = 0, c = start; i < length; i++, c += step) {
+            forEachValidPlacement(c, -1);
+            hits[c] = false;
+        }
+
+        // Сам корабль и клетки вокруг него больше не могут содержать другие корабли
+        int sx = start % size;
+        int sy = start / size;
+        int ex = horizontal ? sx + length - 1 : sx;
+        int ey = horizontal ? sy : sy + length - 1;
+        for (int by = Math.max(0, sy - 1); by <= Math.min(size - 1, ey + 1); by++) {
+            for (int bx = Math.max(0, sx - 1); bx <= Math.min(size - 1, ex + 1); bx++) {
+                block(by * size + bx);
+            }
+        }
+    }
+
+    private void block(int cell) {
+        if (blocked[cell]) return;
+        blocked[cell] = true;
+
+        int x = cell % size;
+        int y = cell / size;
+        for (int li = 0; li < lengths.length; li++) {
+            int length = lengths[li];
+            for (int v = 0; v < 2; v++) {
+                int offset = v == 0 ? x : y;
+                int step = v == 0 ? 1 : size;
+                for (int k = 0; k < length && k <= offset; k++) {
+                    int anchor = cell - k * step;
+                    int placement = anchor * 2 + v;
+                    if (!valid[li][placement]) continue;
+
+                    valid[li][placement] = false;
+                    addToCells(density[li], anchor, length, v, -1);
+                    int hitCount = hitsIn(anchor, length, v);
+                    if (hitCount > 0) {
+                        addToCells(hitDensity[li], anchor, length, v, -hitCount);
+                    }
+                }
+            }
+        }
+    }
+
+    // Добавляет delta к весу попаданий у всех допустимых расстановок, проходящих через клетку
+    private void forEachValidPlacement(int cell, int delta) {
+        int x = cell % size;
+        int y = cell / size;
+        for (int li = 0; li < lengths.length; li++) {
+            int length = lengths[li];
+            for (int v = 0; v < 2; v++) {
+                int offset = v == 0 ? x : y;
+                int step = v == 0 ? 1 : size;
+                for (int k = 0; k < length && k <= offset; k++) {
+                    int anchor = cell - k * step;
+                    if (valid[li][anchor * 2 + v]) {
+                        addToCells(hitDensity[li], anchor, length, v, delta);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addToCells(int[] target, int anchor, int length, int v, int delta) {
+        int step = v == 0 ? 1 : size;
+        for (int i = 0, c = anchor; i < length; i++, c += step) {
+            target[c] += delta;
+        }
+    }
+
+    private int hitsIn(int anchor, int length, int v) {
+        int step = v == 0 ? 1 : size;
+        int count = 0;
+        for (int i = 0, c = anchor; i < length; i++, c += step) {
+            if (hits[c]) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,244 @@
+import java.awt.EventQueue;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Как слушатель получает события
+enum DeliveryPolicy {
+    SAME_THREAD, // сразу, в потоке, который вызвал fireEvent
+    WORKER,      // в отдельном потоке менеджера событий
+    EDT          // в потоке Swing через EventQueue.invokeLater
+}
+
+// Рассылка событий модели. Массивы слушателей копируются при изменении, поэтому добавлять и удалять
+// слушателей можно из любого потока, в том числе прямо во время рассылки.
+// Для асинхронных слушателей fireEvent только кладет событие в очередь без блокировок
+// и никогда не ждет обработчиков.
+// Модель отправляет события в упакованном виде (fire): слушатели CompactEventListener получают
+// два long, а объект GameEvent создается, только если есть обычные слушатели.
+class EventManager {
+    private volatile Registration[] listeners = new Registration[0];
+    private volatile CompactEventListener[] compactListeners = new CompactEventListener[0];
+    private volatile EventChannel workerChannel;
+    private volatile EventChannel edtChannel;
+    private ExecutorService worker;
+
+    public void addListener(GameEventListener listener) {
+        addListener(listener, DeliveryPolicy.SAME_THREAD);
+    }
+
+    // Повторная регистрация того же слушателя только меняет способ доставки
+    public synchronized void addListener(GameEventListener listener, DeliveryPolicy policy) {
+        // Канал создается раньше, чем слушатель станет виден fireEvent: иначе рассылка
+        // в другом потоке могла бы увидеть слушателя без канала
+        if (policy == DeliveryPolicy.WORKER && workerChannel == null) {
+            worker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "game-events");
+                thread.setDaemon(true);
+                return thread;
+            });
+            workerChannel = new EventChannel(worker, event -> deliver(DeliveryPolicy.WORKER, event));
+        } else if (policy == DeliveryPolicy.EDT && edtChannel == null) {
+            edtChannel = new EventChannel(EventQueue::invokeLater, event -> deliver(DeliveryPolicy.EDT, event));
+        }
+
+        Registration[] updated = without(listener);
+        updated = Arrays.copyOf(updated, updated.length + 1);
+        updated[updated.length - 1] = new Registration(listener, policy);
+        listeners = updated;
+    }
+
+    public synchronized void removeListener(GameEventListener listener) {
+        listeners = without(listener);
+    }
+
+    // Упакованные события доставляются только в потоке модели
+    public synchronized void addCompactListener(CompactEventListener listener) {
+        if (Arrays.asList(compactListeners).contains(listener)) return;
+        CompactEventListener[] updated = Arrays.copyOf(compactListeners, compactListeners.length + 1);
+        updated[updated.length - 1] = listener;
+        compactListeners = updated;
+    }
+
+    public synchronized void removeCompactListener(CompactEventListener listener) {
+        compactListeners = Arrays.stream(compactListeners)
+                .filter(l -> l != listener)
+                .toArray(CompactEventListener[]::new);
+    }
+
+    // Без слушателей событие ничего не стоит: ни объекта, ни строки сообщения.
+    // Замер тоже идет по виду из заголовка, чтобы упакованная рассылка оставалась без аллокаций
+    public void fire(Object source, long header, long payload) {
+        long start = Metrics.start();
+        CompactEventListener[] compact = compactListeners;
+        for (CompactEventListener listener : compact) {
+            listener.onCompactEvent(source, header, payload);
+        }
+        Registration[] registrations = listeners;
+        if (registrations.length > 0) {
+            dispatch(CompactEvent.toEvent(source, header, payload), registrations);
+        }
+        Metrics.eventDispatch(start, CompactEvent.kind(header), compact.length + registrations.length);
+    }
+
+    public void fireEvent(GameEvent event) {
+        long start = Metrics.start();
+        Registration[] registrations = listeners;
+        dispatch(event, registrations);
+        Metrics.eventDispatch(start, CompactEvent.kind(event.getHeader()), registrations.length);
+    }
+
+    private void dispatch(GameEvent event, Registration[] registrations) {
+        boolean toWorker = false;
+        boolean toEdt = false;
+        for (Registration registration : registrations) {
+            switch (registration.policy) {
+                case SAME_THREAD -> registration.listener.onGameEvent(event);
+                case WORKER -> toWorker = true;
+                case EDT -> toEdt = true;
+            }
+        }
+        // Канал WORKER пропадает только в shutdown вместе с его слушателями; канал EDT не пропадает
+        EventChannel channel = workerChannel;
+        if (toWorker && channel != null) {
+            channel.publish(event);
+        }
+        EventChannel edt = edtChannel;
+        if (toEdt && edt != null) {
+            edt.publish(event);
+        }
+    }
+
+    // Останавливает поток доставки WORKER и снимает его слушателей; недоставленные им события теряются
+    public synchronized void shutdown() {
+        listeners = Arrays.stream(listeners)
+                .filter(registration -> registration.policy != DeliveryPolicy.WORKER)
+                .toArray(Registration[]::new);
+        workerChannel = null;
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
+    }
+
+    // Вызывается в потоке доставки: ошибка одного слушателя не останавливает рассылку остальным
+    private void deliver(DeliveryPolicy policy, GameEvent event) {
+        for (Registration registration : listeners) {
+            if (registration.policy != policy) continue;
+            try {
+                registration.listener.onGameEvent(event);
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    private Registration[] without(GameEventListener listener) {
+        return Arrays.stream(listeners)
+                .filter(registration -> registration.listener != listener)
+                .toArray(Registration[]::new);
+    }
+
+    private record Registration(GameEventListener listener, DeliveryPolicy policy) {
+    }
+}
+
+// Очередь событий одного способа доставки: много производителей, один потребитель.
+// Основное хранилище - кольцевой буфер: производитель занимает ячейку CAS по хвосту и записывает событие,
+// потребитель забирает события по порядку. Если буфер полон, события уходят в неограниченную
+// очередь переполнения, так что производитель не ждет никогда. Пока в ней что-то есть, новые события
+// тоже идут туда, поэтому события одного потока доставляются в том порядке, в котором отправлены.
+// Флаг drainScheduled гарантирует, что в исполнителе стоит не больше одной задачи разбора.
+final class EventChannel implements Runnable {
+    private static final int CAPACITY = 1024;
+    // Сколько событий разбирать за одну задачу: поток Swing не должен надолго заниматься рассылкой
+    private static final int DRAIN_BATCH = 256;
+
+    private final AtomicReferenceArray<GameEvent> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong tail = new AtomicLong(); // занятые производителями ячейки
+    private volatile long head;                         // пишет только потребитель
+    private final Queue<GameEvent> overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowCount = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Executor executor;
+    private final Consumer<GameEvent> sink;
+
+    EventChannel(Executor executor, Consumer<GameEvent> sink) {
+        this.executor = executor;
+        this.sink = sink;
+    }
+
+    void publish(GameEvent event) {
+        if (overflowCount.get() > 0 || !offer(event)) {
+            overflowCount.incrementAndGet();
+            overflow.add(event);
+        }
+        if (!drainScheduled.get() && drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            GameEvent event = poll();
+            if (event == null) {
+                // Снимаем флаг и перепроверяем: событие могло прийти, пока производитель видел флаг поднятым
+                drainScheduled.set(false);
+                if (isEmpty() || !drainScheduled.compareAndSet(false, true)) return;
+                continue;
+            }
+            sink.accept(event);
+        }
+        executor.execute(this);
+    }
+
+    private boolean offer(GameEvent event) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= CAPACITY) return false;
+        } while (!tail.compareAndSet(t, t + 1));
+        slots.lazySet((int) t & (CAPACITY - 1), event);
+        return true;
+    }
+
+    private GameEvent poll() {
+        while (true) {
+            long h = head;
+            if (h != tail.get()) {
+                int index = (int) h & (CAPACITY - 1);
+                GameEvent event;
+                while ((event = slots.get(index)) == null) {
+                    // Ячейка уже занята производителем, но событие еще не записано
+                    Thread.onSpinWait();
+                }
+                slots.lazySet(index, null);
+                head = h + 1;
+                return event;
+            }
+
+            // Событие из очереди переполнения отдается, только если буфер пуст уже после того,
+            // как оно туда попало: все события, занявшие буфер раньше, к этому моменту разобраны
+            GameEvent event = overflow.peek();
+            if (event == null) return null;
+            if (head != tail.get()) continue;
+            overflow.poll();
+            overflowCount.decrementAndGet();
+            return event;
+        }
+    }
+
+    private boolean isEmpty() {
+        return head == tail.get() && overflow.isEmpty();
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// Индекс кораблей одного поля: у каждого корабля есть номер, список клеток
+// (якорь + ориентация + длина) и счетчик оставшихся попаданий до потопления.
+// На огромных полях клетки кораблей хранятся в хеш-таблице, а не в массиве на всю площадь.
+class Fleet {
+    private final int size;
+    private final int[] shipAtCell; // номер корабля + 1, 0 - клетка пуста; null для разреженного поля
+    private final Map<Integer, Integer> sparseShipAtCell;
+    private final int[] anchorCell;
+    private final int[] length;
+    private final boolean[] horizontal;
+    private final int[] remainingHits;
+    private int shipCount;
+    private int shipsAfloat;
+
+    public Fleet(int size, int capacity) {
+        this(size, capacity, false);
+    }
+
+    public Fleet(int size, int capacity, boolean sparse) {
+        this.size = size;
+        this.shipAtCell = sparse ? null : new int[size * size];
+        this.sparseShipAtCell = sparse ? new HashMap<>() : null;
+        this.anchorCell = new int[capacity];
+        this.length = new int[capacity];
+        this.horizontal = new boolean[capacity];
+        this.remainingHits = new int[capacity];
+    }
+
+    private Fleet(Fleet other) {
+        this.size = other.size;
+        this.shipAtCell = other.shipAtCell != null ? other.shipAtCell.clone() : null;
+        this.sparseShipAtCell = other.sparseShipAtCell != null ? new HashMap<>(other.sparseShipAtCell) : null;
+        this.anchorCell = other.anchorCell.clone();
+        this.length = other.length.clone();
+        this.horizontal = other.horizontal.clone();
+        this.remainingHits = other.remainingHits.clone();
+        this.shipCount = other.shipCount;
+        this.shipsAfloat = other.shipsAfloat;
+    }
+
+    // Независимая копия - снимок для расчета в другом потоке
+    public Fleet copy() {
+        return new Fleet(this);
+    }
+
+    // Очищаются только клетки поставленных кораблей, без прохода по всему полю
+    public void clear() {
+        if (shipAtCell != null) {
+            for (int id = 0; id < shipCount; id++) {
+                for (int i = 0; i < length[id]; i++) {
+                    shipAtCell[getShipCell(id, i)] = 0;
+                }
+            }
+        } else {
+            sparseShipAtCell.clear();
+        }
+        shipCount = 0;
+        shipsAfloat = 0;
+    }
+
+    public int addShip(int x, int y, int shipLength, boolean shipHorizontal) {
+        int id = shipCount++;
+        anchorCell[id] = y * size + x;
+        length[id] = shipLength;
+        horizontal[id] = shipHorizontal;
+        remainingHits[id] = shipLength;
+        shipsAfloat++;
+        for (int i = 0; i < shipLength; i++) {
+            if (shipAtCell != null) {
+                shipAtCell[getShipCell(id, i)] = id + 1;
+            } else {
+                sparseShipAtCell.put(getShipCell(id, i), id + 1);
+            }
+        }
+        return id;
+    }
+
+    // Номер корабля в клетке или -1
+    public int shipAt(int x, int y) {
+        return shipAt(y * size + x);
+    }
+
+    public int shipAt(int cell) {
+        if (shipAtCell != null) {
+            return shipAtCell[cell] - 1;
+        }
+        return sparseShipAtCell.getOrDefault(cell, 0) - 1;
+    }
+
+    // Учитывает попадание в корабль; возвращает true, если корабль потоплен этим выстрелом
+    public boolean registerHit(int id) {
+        if (--remainingHits[id] == 0) {
+            shipsAfloat--;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isSunk(int id) {
+        return remainingHits[id] == 0;
+    }
+
+    // Клетка корабля с номером i (от якоря)
+    public int getShipCell(int id, int i) {
+        return anchorCell[id] + (horizontal[id] ? i : i * size);
+    }
+
+    public int getShipX(int id) { return anchorCell[id] % size; }
+    public int getShipY(int id) { return anchorCell[id] / size; }
+    public int getShipLength(int id) { return length[id]; }
+    public boolean isShipHorizontal(int id) { return horizontal[id]; }
+    public int getRemainingHits(int id) { return remainingHits[id]; }
+    public int getShipCount() { return shipCount; }
+    public int getShipsAfloat() { return shipsAfloat; }
+
+    // Примерный объем в куче, байт: индекс клеток по всей площади или записи хеш-таблицы
+    public long estimateFootprint() {
+        long cells = shipAtCell != null ? 16 + 4L * shipAtCell.length : 48L * sparseShipAtCell.size();
+        return cells + 13L * anchorCell.length;
+    }
+}
@@ -0,0 +1,226 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// Генератор расстановки флота без бесконечной выборки с отклонением.
+// Для каждой длины корабля хранится множество позиций (анкер + ориентация), которые еще могут подойти.
+// Позиция, оказавшаяся занятой после установки других кораблей, удаляется из множества при выборке,
+// поэтому каждая позиция проверяется не больше одного раза на уровне перебора.
+// Если очередному кораблю некуда встать, генератор откатывает предыдущий и пробует другую позицию;
+// если откатов в одной попытке слишком много, расстановка начинается заново.
+// Общее число шагов ограничено, поэтому время работы ограничено сверху даже для невыполнимого флота.
+class FleetGenerator {
+    // Сколько раз сначала пробовать случайную позицию по всему полю: на свободном поле это дешевле,
+    // чем обращаться к большим массивам множеств, а распределение остается равномерным
+    private static final int QUICK_TRIES = 8;
+
+    private final int size;
+    private final int[] shipSizes;
+    private final int[] order;        // порядок установки: от больших кораблей к маленьким
+    private final int[] lengths;      // различные длины
+    private final int[] lengthIndex;  // индекс длины для каждого корабля
+    private final int maxSteps;
+    private final int restartSteps;
+    private final BitBoard board;
+
+    // Множество позиций для каждой длины: items[0..count) и обратный индекс position.
+    // Все удаления пишутся в журнал, так что исходное множество восстанавливается откатом журнала -
+    // вместе с порядком элементов, иначе расстановка зависела бы от предыдущих вызовов, а не только от random.
+    private final int[][] items;
+    private final int[][] position;
+    private final int[] count;
+
+    private int[] undo = new int[256];      // записи lengthIndex * placements + позиция
+    private int[] undoIndex = new int[256]; // где в items стояла удаленная позиция
+    private int undoTop;
+    private int depthPlaced; // сколько кораблей из chosen сейчас стоит на поле
+    private final int[] mark;
+    private final int[] chosen;
+
+    private final int[] shipX;
+    private final int[] shipY;
+    private final boolean[] shipHorizontal;
+
+    public FleetGenerator(int size, int[] shipSizes) {
+        this(size, shipSizes, 64 * shipSizes.length + 4096);
+    }
+
+    public FleetGenerator(int size, int[] shipSizes, int maxSteps) {
+        this.size = size;
+        this.shipSizes = shipSizes.clone();
+        this.maxSteps = maxSteps;
+        this.restartSteps = 2 * shipSizes.length + 16;
+        this.board = new BitBoard(size);
+
+        int ships = shipSizes.length;
+        Integer[] boxed = new Integer[ships];
+        for (int i = 0; i < ships; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> shipSizes[b] - shipSizes[a]);
+        order = new int[ships];
+        for (int i = 0; i < ships; i++) {
+            order[i] = boxed[i];
+        }
+
+        int[] sorted = shipSizes.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        lengths = Arrays.copyOf(sorted, distinct);
+        lengthIndex = new int[ships];
+        for (int i = 0; i < ships; i++) {
+            lengthIndex[i] = Arrays.binarySearch(lengths, shipSizes[i]);
+        }
+
+        int placements = size * size * 2;
+        items = new int[distinct][placements];
+        position = new int[distinct][placements];
+        count = new int[distinct];
+        for (int li = 0; li < distinct; li++) {
+            Arrays.fill(position[li], -1);
+            int length = lengths[li];
+            for (int p = 0; p < placements; p++) {
+                int anchor = p >> 1;
+                boolean fits = (p & 1) == 0 ? anchor % size + length <= size : anchor / size + length <= size;
+                if (fits) {
+                    position[li][p] = count[li];
+                    items[li][count[li]++] = p;
+                }
+            }
+        }
+
+        mark = new int[ships];
+        chosen = new int[ships];
+        shipX = new int[ships];
+        shipY = new int[ships];
+        shipHorizontal = new boolean[ships];
+    }
+
+    // Примерный объем в куче, байт; почти все занимают множества позиций - items и position на каждую длину
+    public long estimateFootprint() {
+        return 2L * lengths.length * (16 + 4L * size * size * 2) + board.estimateFootprint()
+                + 4L * (undo.length + undoIndex.length);
+    }
+
+    // Расставляет весь флот на пустом поле; false, если за maxSteps шагов это не удалось.
+    // Время работы - O(maxSteps + число удаленных позиций), без прохода по всему полю.
+    public boolean generate(Random random) {
+        restart();
+
+        int depth = 0;
+        int steps = 0;
+        int attemptSteps = 0;
+        while (depth < order.length) {
+            if (++steps > maxSteps) return false;
+            if (++attemptSteps > restartSteps) {
+                restart();
+                depth = 0;
+                attemptSteps = 0;
+            }
+
+            int ship = order[depth];
+            int li = lengthIndex[ship];
+            int placement = -1;
+            int placements = size * size * 2;
+            for (int i = 0; i < QUICK_TRIES && placement < 0; i++) {
+                int candidate = random.nextInt(placements);
+                int anchor = candidate >> 1;
+                if (position[li][candidate] >= 0
+                        && board.canPlaceShip(anchor % size, anchor / size, shipSizes[ship], (candidate & 1) == 0)) {
+                    placement = candidate;
+                }
+            }
+            while (placement < 0 && count[li] > 0) {
+                int candidate = items[li][random.nextInt(count[li])];
+                int anchor = candidate >> 1;
+                if (board.canPlaceShip(anchor % size, anchor / size, shipSizes[ship], (candidate & 1) == 0)) {
+                    placement = candidate;
+                } else {
+                    remove(li, candidate);
+                }
+            }
+
+            if (placement < 0) {
+                // Некуда ставить: снимаем предыдущий корабль и запрещаем его позицию на этом уровне
+                if (depth == 0) return false;
+                depth--;
+                depthPlaced = depth;
+                undoTo(mark[depth]);
+                int previous = chosen[depth];
+                board.removeShip((previous >> 1) % size, (previous >> 1) / size,
+                        shipSizes[order[depth]], (previous & 1) == 0);
+                remove(lengthIndex[order[depth]], previous);
+                continue;
+            }
+
+            // Все удаления после mark относятся к состоянию поля с этим кораблем и откатываются вместе с ним
+            mark[depth] = undoTop;
+            chosen[depth] = placement;
+            board.placeShip((placement >> 1) % size, (placement >> 1) / size, shipSizes[ship], (placement & 1) == 0);
+            depth++;
+            depthPlaced = depth;
+        }
+
+        for (int i = 0; i < order.length; i++) {
+            int ship = order[i];
+            int anchor = chosen[i] >> 1;
+            shipX[ship] = anchor % size;
+            shipY[ship] = anchor / size;
+            shipHorizontal[ship] = (chosen[i] & 1) == 0;
+        }
+        return true;
+    }
+
+    // Убирает все корабли и восстанавливает исходные множества позиций
+    private void restart() {
+        undoTo(0);
+        for (int i = 0; i < depthPlaced; i++) {
+            int placement = chosen[i];
+            board.removeShip((placement >> 1) % size, (placement >> 1) / size,
+                    shipSizes[order[i]], (placement & 1) == 0);
+        }
+        depthPlaced = 0;
+    }
+
+    public int getShipX(int ship) { return shipX[ship]; }
+    public int getShipY(int ship) { return shipY[ship]; }
+    public boolean isShipHorizontal(int ship) { return shipHorizontal[ship]; }
+
+    private void remove(int li, int placement) {
+        int index = position[li][placement];
+        if (index < 0) return;
+
+        int last = items[li][--count[li]];
+        items[li][index] = last;
+        position[li][last] = index;
+        position[li][placement] = -1;
+
+        if (undoTop == undo.length) {
+            undo = Arrays.copyOf(undo, undo.length * 2);
+            undoIndex = Arrays.copyOf(undoIndex, undo.length);
+        }
+        undoIndex[undoTop] = index;
+        undo[undoTop++] = li * size * size * 2 + placement;
+    }
+
+    private void undoTo(int top) {
+        int placements = size * size * 2;
+        while (undoTop > top) {
+            int entry = undo[--undoTop];
+            int li = entry / placements;
+            int placement = entry % placements;
+            int index = undoIndex[undoTop];
+            // Обратный шаг к удалению перестановкой с последним: переставленный элемент возвращается в конец
+            int moved = items[li][index];
+            items[li][count[li]] = moved;
+            position[li][moved] = count[li];
+            items[li][index] = placement;
+            position[li][placement] = index;
+            count[li]++;
+        }
+    }
+}
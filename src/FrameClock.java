@@ -0,0 +1,94 @@
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Единые часы анимаций интерфейса: все эффекты работают от одного таймера Swing.
+// Кадр вызывает tick у каждой активной анимации с текущим временем; анимация считает свое
+// состояние по прошедшему времени, сама перерисовывает только задетую область и возвращает
+// время, когда ей нужен следующий кадр. Таймер срабатывает к ближайшему такому времени,
+// а без активных анимаций останавливается. Все методы - только из EDT.
+class FrameClock {
+    static final long FINISHED = -1;
+    // Чаще кадра экрана будить не имеет смысла
+    private static final long MIN_FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+    // Таймер Swing точен до миллисекунды: кадр, до которого осталось меньше, считается наступившим
+    private static final long TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    interface Animation {
+        // Кадр в момент now (System.nanoTime); возвращает время следующего кадра или FINISHED
+        long tick(long now);
+    }
+
+    private final List<Animation> animations = new ArrayList<>();
+    private final List<Long> deadlines = new ArrayList<>();
+    private final Timer timer;
+
+    FrameClock() {
+        timer = new Timer(0, e -> frame());
+        timer.setRepeats(false);
+    }
+
+    // Запускает анимацию (или перезапускает уже идущую); первый кадр - на ближайшем такте
+    public void start(Animation animation) {
+        int index = animations.indexOf(animation);
+        if (index < 0) {
+            animations.add(animation);
+            deadlines.add(0L);
+        } else {
+            deadlines.set(index, 0L);
+        }
+        schedule(System.nanoTime());
+    }
+
+    public void stop(Animation animation) {
+        int index = animations.indexOf(animation);
+        if (index >= 0) {
+            animations.remove(index);
+            deadlines.remove(index);
+        }
+        if (animations.isEmpty()) {
+            timer.stop();
+        }
+    }
+
+    public boolean isRunning(Animation animation) {
+        return animations.contains(animation);
+    }
+
+    public int getActiveCount() { return animations.size(); }
+
+    private void frame() {
+        long now = System.nanoTime();
+        // С конца: анимации, запущенные из tick, добавляются в конец и ждут следующего кадра
+        for (int i = animations.size() - 1; i >= 0; i--) {
+            if (i >= animations.size()) continue;
+            if (deadlines.get(i) - now > TOLERANCE_NANOS) continue;
+            Animation animation = animations.get(i);
+            long next = animation.tick(now);
+            // tick мог запустить или остановить анимации, поэтому индекс ищется заново
+            int index = animations.indexOf(animation);
+            if (index < 0) continue;
+            if (next == FINISHED) {
+                animations.remove(index);
+                deadlines.remove(index);
+            } else {
+                deadlines.set(index, next);
+            }
+        }
+        schedule(now);
+    }
+
+    private void schedule(long now) {
+        if (animations.isEmpty()) {
+            timer.stop();
+            return;
+        }
+        long next = Long.MAX_VALUE;
+        for (long deadline : deadlines) {
+            next = Math.min(next, Math.max(deadline, now + MIN_FRAME_NANOS));
+        }
+        timer.setInitialDelay((int) TimeUnit.NANOSECONDS.toMillis(next - now + TOLERANCE_NANOS - 1));
+        timer.restart();
+    }
+}
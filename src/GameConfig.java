@@ -0,0 +1,64 @@
+import java.util.Arrays;
+
+// Параметры партии: размер поля и состав флота
+final class GameConfig {
+    // Индекс клетки y * size + x должен помещаться в int
+    public static final int MAX_BOARD_SIZE = 46340;
+    // Поля больше этого размера хранятся разреженно, а флот расставляется случайным подбором
+    public static final int DENSE_LIMIT = 256;
+
+    public static final GameConfig CLASSIC = new GameConfig(10, new int[]{4, 3, 3, 2, 2, 2, 1, 1, 1, 1});
+
+    private final int boardSize;
+    private final int[] shipSizes;
+    private final int totalShipCells;
+
+    public GameConfig(int boardSize, int[] shipSizes) {
+        if (boardSize < 1 || boardSize > MAX_BOARD_SIZE) {
+            throw new IllegalArgumentException("Недопустимый размер поля: " + boardSize);
+        }
+        if (shipSizes.length == 0) {
+            throw new IllegalArgumentException("Флот не может быть пустым");
+        }
+        int total = 0;
+        for (int shipSize : shipSizes) {
+            if (shipSize < 1 || shipSize > boardSize) {
+                throw new IllegalArgumentException("Корабль длины " + shipSize + " не помещается на поле " + boardSize);
+            }
+            total += shipSize;
+        }
+        this.boardSize = boardSize;
+        this.shipSizes = shipSizes.clone();
+        this.totalShipCells = total;
+    }
+
+    // Классический флот на поле другого размера
+    public static GameConfig classic(int boardSize) {
+        return boardSize == CLASSIC.boardSize ? CLASSIC : new GameConfig(boardSize, CLASSIC.shipSizes);
+    }
+
+    public int getBoardSize() { return boardSize; }
+    public int getCellCount() { return boardSize * boardSize; }
+    public int getShipCount() { return shipSizes.length; }
+    public int getShipSize(int index) { return shipSizes[index]; }
+    public int[] getShipSizes() { return shipSizes.clone(); }
+    public int getTotalShipCells() { return totalShipCells; }
+    public boolean isSparse() { return boardSize > DENSE_LIMIT; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GameConfig other)) return false;
+        return boardSize == other.boardSize && Arrays.equals(shipSizes, other.shipSizes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * boardSize + Arrays.hashCode(shipSizes);
+    }
+
+    @Override
+    public String toString() {
+        return boardSize + "x" + boardSize + " " + Arrays.toString(shipSizes);
+    }
+}
@@ -1,11 +1,24 @@
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 class GameController {
+    // В окне ход компьютера не дольше этого: игрок не ждет, даже если стратегия могла бы считать дольше
+    private static final long COMPUTER_MOVE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
     private final GameModel model;
     private final GameView view;
     private Timer computerTurnTimer;
+    // ИИ компьютера считает ход здесь, а не в EDT: тяжелая стратегия не должна замораживать окно
+    private final ExecutorService computerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "computer-ai");
+        thread.setDaemon(true);
+        return thread;
+    });
     private boolean listenersInitialized = false;
 
     public GameController(GameModel model, GameView view) {
@@ -18,7 +31,8 @@ class GameController {
             setupEventListeners();
             listenersInitialized = true;
         }
-        model.getEventManager().addListener(view);
+        // Окно с итогом партии и прочая работа с интерфейсом не должны задерживать модель
+        model.getEventManager().addListener(view, DeliveryPolicy.EDT);
         updateView();
         view.setPlacementMode(model.isPlacementMode());
     }
@@ -65,7 +79,6 @@ class GameController {
             if (result == JOptionPane.YES_OPTION) {
                 model.resetGame();
                 model.autoPlacePlayerShips();
-                updateView();
                 view.setPlacementMode(false);
                 view.startAnimation();
             }
@@ -73,34 +86,45 @@ class GameController {
 
         // Таймер для хода компьютера
         computerTurnTimer = new Timer(1500, e -> {
-            if (!model.isPlayerTurn() && model.isGameStarted()) {
-                model.computerShoot();
-                updateView();
-
-                if (model.isPlayerTurn()) {
-                    view.setStatus("Ваш ход! Стреляйте по полю компьютера.");
-                    view.startAnimation();
-                }
+            if (!model.isPlayerTurn() && model.isGameStarted() && !model.isComputerShotPending()) {
+                model.computeComputerShot(computerExecutor, COMPUTER_MOVE_BUDGET_NANOS)
+                        .whenCompleteAsync(this::computerShotReady, SwingUtilities::invokeLater);
             }
         });
     }
 
+    private void computerShotReady(GameModel.ComputerShot shot, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (!(cause instanceof CancellationException)) {
+                // Следующий такт таймера начнет расчет заново
+                model.cancelComputerShot();
+                view.setStatus("Ошибка хода компьютера: " + cause);
+            }
+            return;
+        }
+        // Партию сбросили, пока ИИ думал
+        if (!model.applyComputerShot(shot)) return;
+
+        // Строку состояния ("Компьютер промахнулся! Ваш ход.") вид берет из события модели
+        if (model.isPlayerTurn()) {
+            view.startAnimation();
+        }
+    }
+
     private void handleComputerBoardClick(MouseEvent e) {
         if (!model.isGameStarted() || !model.isPlayerTurn()) return;
 
-        Point cell = getCellFromCoordinates(e.getPoint(),
-                view.getComputerBoardPanel().getWidth(),
-                view.getComputerBoardPanel().getHeight());
+        Point cell = getCell(view.getComputerBoardPanel(), e.getPoint());
 
         if (cell != null) {
             boolean hit = model.playerShoot(cell.x, cell.y);
-            updateView();
 
+            // Текст о попадании или промахе приходит видом в событии модели: вид получает события позже,
+            // в потоке Swing, и строка, выставленная здесь, была бы сразу затерта
             if (hit) {
-                view.setStatus("Попадание! Стреляйте снова.");
                 view.addExplosion(cell);
             } else {
-                view.setStatus("Промах! Ход компьютера.");
                 computerTurnTimer.start();
                 view.stopAnimation();
             }
@@ -110,13 +134,10 @@ class GameController {
     private void handlePlayerBoardClick(MouseEvent e) {
         if (model.isGameStarted()) return;
 
-        Point cell = getCellFromCoordinates(e.getPoint(),
-                view.getPlayerBoardPanel().getWidth(),
-                view.getPlayerBoardPanel().getHeight());
+        Point cell = getCell(view.getPlayerBoardPanel(), e.getPoint());
 
         if (cell != null) {
             boolean placed = model.placePlayerShip(cell.x, cell.y);
-            updateView();
 
             if (placed && !model.isPlacementMode()) {
                 // Все корабли расставлены, начинаем игру
@@ -129,31 +150,29 @@ class GameController {
     private void handleComputerBoardHover(MouseEvent e) {
         if (!model.isGameStarted() || !model.isPlayerTurn()) return;
 
-        Point cell = getCellFromCoordinates(e.getPoint(),
-                view.getComputerBoardPanel().getWidth(),
-                view.getComputerBoardPanel().getHeight());
-        view.setHighlightedCell(cell);
+        highlightCell(view.getComputerBoardPanel().cellAt(e.getX(), e.getY()));
     }
 
     private void handlePlayerBoardHover(MouseEvent e) {
-        Point cell = getCellFromCoordinates(e.getPoint(),
-                view.getPlayerBoardPanel().getWidth(),
-                view.getPlayerBoardPanel().getHeight());
-        view.setHighlightedCell(cell);
+        highlightCell(view.getPlayerBoardPanel().cellAt(e.getX(), e.getY()));
     }
 
-    private Point getCellFromCoordinates(Point point, int width, int height) {
-        int cellSize = Math.min(width, height) / (GameModel.BOARD_SIZE + 2);
-        int offsetX = (width - cellSize * GameModel.BOARD_SIZE) / 2;
-        int offsetY = (height - cellSize * GameModel.BOARD_SIZE) / 2;
-
-        int x = (point.x - offsetX) / cellSize;
-        int y = (point.y - offsetY) / cellSize;
-
-        if (x >= 0 && x < GameModel.BOARD_SIZE && y >= 0 && y < GameModel.BOARD_SIZE) {
-            return new Point(x, y);
+    // Движение мыши приходит сотни раз в секунду, поэтому клетка передается без создания Point
+    private void highlightCell(int cell) {
+        int boardSize = model.getBoardSize();
+        if (cell < 0) {
+            view.setHighlightedCell(-1, -1);
+        } else {
+            view.setHighlightedCell(cell % boardSize, cell / boardSize);
         }
-        return null;
+    }
+
+    // Клетку под точкой находит сама панель - с учетом масштаба и сдвига поля
+    private Point getCell(GameView.GameBoardPanel panel, Point point) {
+        int cell = panel.cellAt(point.x, point.y);
+        if (cell < 0) return null;
+        int boardSize = model.getBoardSize();
+        return new Point(cell % boardSize, cell / boardSize);
     }
 
     public void applySettings(String difficulty, String selectedTheme) {
@@ -162,18 +181,20 @@ class GameController {
     }
 
     public void resetGame() {
+        // Сброс модели отменяет и идущий расчет хода компьютера
         model.resetGame();
         if (computerTurnTimer != null) {
             computerTurnTimer.stop();
         }
         view.stopAnimation();
         view.resetTimer();
-        updateView();
         view.setPlacementMode(model.isPlacementMode());
     }
 
+    // Полная загрузка полей и надписей при подключении вида; дальше вид меняется по событиям модели
     private void updateView() {
         view.updateBoard(
+                model.getBoardSize(),
                 model.getPlayerBoard(),
                 model.getComputerBoard(),
                 model.getPlayerShots(),
@@ -183,6 +204,15 @@ class GameController {
         view.setPlacementInfo(model.getCurrentShipIndex(), model.getTotalShips());
     }
 
+    // Выход в меню: ход компьютера не считается и не применяется, пока партия не начнется заново
+    public void stopComputerTurn() {
+        if (computerTurnTimer != null) {
+            computerTurnTimer.stop();
+        }
+        model.cancelComputerShot();
+        view.stopAnimation();
+    }
+
     public boolean isPlayerTurn() {
         return model.isPlayerTurn();
     }
@@ -1,20 +1,43 @@
 import java.util.EventObject;
-import java.util.ArrayList;
-import java.util.List;
 
 interface GameEventListener {
     void onGameEvent(GameEvent event);
 }
 
+// Слушатель событий в упакованном виде: два long вместо объекта, без аллокаций на событие.
+// Разобрать их можно методами CompactEvent
+interface CompactEventListener {
+    void onCompactEvent(Object source, long header, long payload);
+}
+
 abstract class GameEvent extends EventObject {
-    private final String message;
+    private final long header;
+    private final long payload;
+    private String message; // строится при первом запросе, если событие создано из упакованного вида
 
     public GameEvent(Object source, String message) {
         super(source);
+        this.header = 0;
+        this.payload = 0;
         this.message = message;
     }
 
-    public String getMessage() { return message; }
+    GameEvent(Object source, long header, long payload) {
+        super(source);
+        this.header = header;
+        this.payload = payload;
+    }
+
+    public String getMessage() {
+        if (message == null) {
+            message = CompactEvent.format(header, payload);
+        }
+        return message;
+    }
+
+    // Упакованный вид события; 0, если событие создано с готовым текстом
+    public long getHeader() { return header; }
+    public long getPayload() { return payload; }
 }
 
 class ScoreChangedEvent extends GameEvent {
@@ -25,6 +48,11 @@ class ScoreChangedEvent extends GameEvent {
         this.newScore = newScore;
     }
 
+    ScoreChangedEvent(Object source, long header, long payload) {
+        super(source, header, payload);
+        this.newScore = CompactEvent.playerScore(payload);
+    }
+
     public int getNewScore() { return newScore; }
 }
 
@@ -36,6 +64,11 @@ class GameOverEvent extends GameEvent {
         this.playerWon = playerWon;
     }
 
+    GameOverEvent(Object source, long header, long payload) {
+        super(source, header, payload);
+        this.playerWon = CompactEvent.kind(header) == CompactEvent.PLAYER_WON;
+    }
+
     public boolean isPlayerWon() { return playerWon; }
 }
 
@@ -43,29 +76,166 @@ class ShipHitEvent extends GameEvent {
     private final int x;
     private final int y;
     private final boolean destroyed;
+    private final int shipId;
+    private final int shipSize;
 
-    public ShipHitEvent(Object source, String message, int x, int y, boolean destroyed) {
+    public ShipHitEvent(Object source, String message, int x, int y, boolean destroyed, int shipId, int shipSize) {
         super(source, message);
         this.x = x;
         this.y = y;
         this.destroyed = destroyed;
+        this.shipId = shipId;
+        this.shipSize = shipSize;
+    }
+
+    ShipHitEvent(Object source, long header, long payload) {
+        super(source, header, payload);
+        this.x = CompactEvent.x(header);
+        this.y = CompactEvent.y(header);
+        this.destroyed = CompactEvent.hasFlag(header, CompactEvent.DESTROYED);
+        this.shipId = CompactEvent.high(payload);
+        this.shipSize = CompactEvent.low(payload);
     }
 
     public int getX() { return x; }
     public int getY() { return y; }
     public boolean isDestroyed() { return destroyed; }
+    // Номер корабля в Fleet поля, по которому стреляли
+    public int getShipId() { return shipId; }
+    public int getShipSize() { return shipSize; }
 }
 
-class EventManager {
-    private final List<GameEventListener> listeners = new ArrayList<>();
+// Изменение одной клетки поля (или очистка обоих полей в начале партии)
+class CellChangedEvent extends GameEvent {
+    private final boolean cleared;
+    private final boolean playerBoard;
+    private final int x;
+    private final int y;
+    private final int oldState;
+    private final int newState;
+
+    CellChangedEvent(Object source, long header, long payload) {
+        super(source, header, payload);
+        int kind = CompactEvent.kind(header);
+        this.cleared = kind == CompactEvent.BOARD_CLEARED;
+        this.playerBoard = kind == CompactEvent.PLAYER_CELL;
+        this.x = CompactEvent.x(header);
+        this.y = CompactEvent.y(header);
+        this.oldState = CompactEvent.oldCellState(header);
+        this.newState = CompactEvent.newCellState(header);
+    }
+
+    public boolean isCleared() { return cleared; }
+    public boolean isPlayerBoard() { return playerBoard; }
+    public int getX() { return x; }
+    public int getY() { return y; }
+    // У очистки полей в x - размер поля
+    public int getBoardSize() { return x; }
+    public int getOldState() { return oldState; }
+    public int getNewState() { return newState; }
+}
 
-    public void addListener(GameEventListener listener) {
-        listeners.add(listener);
+// Упакованное событие модели.
+// header: вид события (8 бит) | флаги (24 бита) | x (16 бит) | y (16 бит)
+// payload: для счета и конца партии - счет игрока и компьютера по 32 бита,
+// для попадания - номер корабля и его длина.
+// У событий расстановки в x лежит длина текущего корабля, в y - сколько кораблей осталось,
+// у промахов x и y - клетка выстрела.
+// У изменений клетки x и y - клетка, во флагах старое и новое состояние по 4 бита (CELL_*);
+// у очистки полей в x - размер поля.
+// Текст сообщения собирается только в format, когда он кому-то понадобился.
+final class CompactEvent {
+    // Старшие 4 бита вида - тип события, младшие - конкретное сообщение
+    static final int SCORE_CHANGED = 1;
+    static final int SHIP_HIT = 2;
+    static final int GAME_OVER = 3;
+    static final int CELL_CHANGED = 4;
+
+    static final int PLACEMENT_STARTED = SCORE_CHANGED << 4;
+    static final int SHIP_PLACED = SCORE_CHANGED << 4 | 1;
+    static final int PLACEMENT_FINISHED = SCORE_CHANGED << 4 | 2;
+    static final int SHIP_ROTATED = SCORE_CHANGED << 4 | 3;
+    static final int SCORE = SCORE_CHANGED << 4 | 4;
+    static final int PLAYER_MISSED = SCORE_CHANGED << 4 | 5;
+    static final int COMPUTER_MISSED = SCORE_CHANGED << 4 | 6;
+    static final int PLAYER_HIT = SHIP_HIT << 4;
+    static final int COMPUTER_HIT = SHIP_HIT << 4 | 1;
+    static final int PLAYER_WON = GAME_OVER << 4;
+    static final int COMPUTER_WON = GAME_OVER << 4 | 1;
+    static final int BOARD_CLEARED = CELL_CHANGED << 4;
+    static final int PLAYER_CELL = CELL_CHANGED << 4 | 1;   // поле игрока: его корабли и выстрелы компьютера
+    static final int COMPUTER_CELL = CELL_CHANGED << 4 | 2; // поле компьютера: его корабли и выстрелы игрока
+
+    // Состояния клетки
+    static final int CELL_EMPTY = 0;
+    static final int CELL_SHIP = 1;
+    static final int CELL_MISS = 2;
+    static final int CELL_HIT = 3;
+
+    static final int DESTROYED = 1;
+    static final int HORIZONTAL = 1 << 1;
+
+    private CompactEvent() {
     }
 
-    public void fireEvent(GameEvent event) {
-        for (GameEventListener listener : listeners) {
-            listener.onGameEvent(event);
-        }
+    static long header(int kind, int flags, int x, int y) {
+        return (long) kind << 56 | (long) (flags & 0xFFFFFF) << 32 | (long) (x & 0xFFFF) << 16 | (y & 0xFFFF);
+    }
+
+    static long payload(int high, int low) {
+        return (long) high << 32 | (low & 0xFFFFFFFFL);
     }
-}
\ No newline at end of file
+
+    static int kind(long header) { return (int) (header >>> 56); }
+    static int type(long header) { return (int) (header >>> 60); }
+    static boolean hasFlag(long header, int flag) { return ((header >>> 32) & flag) != 0; }
+    static int x(long header) { return (int) (header >>> 16) & 0xFFFF; }
+    static int y(long header) { return (int) header & 0xFFFF; }
+    static int oldCellState(long header) { return (int) (header >>> 36) & 0xF; }
+    static int newCellState(long header) { return (int) (header >>> 32) & 0xF; }
+    static int high(long payload) { return (int) (payload >>> 32); }
+    static int low(long payload) { return (int) payload; }
+    static int playerScore(long payload) { return high(payload); }
+    static int computerScore(long payload) { return low(payload); }
+
+    // Имя типа события по виду - как у класса, которым событие приходит слушателям GameEventListener;
+    // у событий, созданных с готовым текстом, вид 0
+    static String typeName(int kind) {
+        return switch (kind >>> 4) {
+            case SCORE_CHANGED -> "ScoreChangedEvent";
+            case SHIP_HIT -> "ShipHitEvent";
+            case GAME_OVER -> "GameOverEvent";
+            case CELL_CHANGED -> "CellChangedEvent";
+            default -> "GameEvent";
+        };
+    }
+
+    // Объект события для слушателей GameEventListener
+    static GameEvent toEvent(Object source, long header, long payload) {
+        return switch (type(header)) {
+            case SHIP_HIT -> new ShipHitEvent(source, header, payload);
+            case GAME_OVER -> new GameOverEvent(source, header, payload);
+            case CELL_CHANGED -> new CellChangedEvent(source, header, payload);
+            default -> new ScoreChangedEvent(source, header, payload);
+        };
+    }
+
+    static String format(long header, long payload) {
+        return switch (kind(header)) {
+            case PLACEMENT_STARTED -> "Расставьте ваши корабли! Текущий корабль: " + x(header) + " клетки";
+            case SHIP_PLACED -> "Корабль размещен! Следующий: " + x(header) + " клетки. " +
+                    "Кораблей осталось: " + y(header);
+            case PLACEMENT_FINISHED -> "Все корабли расставлены! Игра начинается! Ваш ход.";
+            case SHIP_ROTATED -> "Ориентация изменена. Текущий корабль: " + x(header) + " клетки (" +
+                    (hasFlag(header, HORIZONTAL) ? "горизонтально" : "вертикально") + ")";
+            case SCORE -> "Счет: " + playerScore(payload) + " - " + computerScore(payload);
+            case PLAYER_MISSED -> "Промах! Ход компьютера.";
+            case COMPUTER_MISSED -> "Компьютер промахнулся! Ваш ход.";
+            case PLAYER_HIT -> "Попадание! Стреляйте снова.";
+            case COMPUTER_HIT -> "Компьютер попал в ваше судно!";
+            case PLAYER_WON -> "Поздравляем! Вы победили!";
+            case COMPUTER_WON -> "Компьютер победил! Попробуйте еще раз.";
+            default -> "";
+        };
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Журнал партий в компактном двоичном виде. Файл отображается в память сегментами, запись партии -
+// это резервирование места одним getAndAdd и копирование байтов, без системных вызовов и блокировок.
+// Писать могут несколько потоков сразу (например, задачи GameSimulator).
+//
+// Файл: заголовок (MAGIC, размер сегмента), затем записи [длина varint][тело].
+// Тело: размер поля varint, зерно партии (8 байт), число кораблей varint, длины кораблей varint,
+// корабли игрока и компьютера: число расставленных varint, затем они по varint (якорь * 2 + вертикаль)
+// в порядке флота; партия, прерванная на расстановке, пишет только расставленные. Число выстрелов varint,
+// выстрелы varint (на поле до 11x11 - байт на выстрел, до 128x128 - два).
+// Запись не пересекает границу сегмента; пропущенный хвост сегмента остается нулями,
+// а длина записи не бывает нулевой, поэтому читатель просто пропускает нулевые байты.
+class GameJournal implements Closeable {
+    static final int MAGIC = 0x42534A32; // "BSJ2"
+    static final int HEADER_SIZE = 8;
+    static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final AtomicLong position = new AtomicLong(HEADER_SIZE);
+    private final ThreadLocal<RecordEncoder> encoders = ThreadLocal.withInitial(RecordEncoder::new);
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    public GameJournal(Path file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public GameJournal(Path file, int segmentSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentSize = segmentSize;
+        MappedByteBuffer first = segment(0);
+        first.putInt(0, MAGIC);
+        first.putInt(4, segmentSize);
+    }
+
+    // Записывает законченную (или прерванную) партию модели
+    public void append(GameModel model) throws IOException {
+        RecordEncoder encoder = encoders.get();
+        encoder.encode(model);
+        int total = RecordEncoder.varintSize(encoder.length) + encoder.length;
+        if (total > segmentSize) {
+            throw new IllegalArgumentException("Запись партии (" + total + " байт) больше сегмента журнала");
+        }
+
+        while (true) {
+            long start = position.getAndAdd(total);
+            long index = start / segmentSize;
+            if (start + total <= (index + 1) * segmentSize) {
+                MappedByteBuffer segment = segment((int) index);
+                int offset = (int) (start - index * segmentSize);
+                offset = RecordEncoder.putVarint(segment, offset, encoder.length);
+                segment.put(offset, encoder.bytes, 0, encoder.length);
+                return;
+            }
+            // Не поместилась в сегмент: зарезервированный участок остается нулями, пробуем дальше
+        }
+    }
+
+    public long size() {
+        return position.get();
+    }
+
+    // Вызывать после того, как все потоки закончили append
+    @Override
+    public synchronized void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+        channel.truncate(position.get());
+        channel.close();
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        return mapSegment(index);
+    }
+
+    private synchronized MappedByteBuffer mapSegment(int index) throws IOException {
+        MappedByteBuffer[] current = segments;
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        }
+        if (current[index] == null) {
+            current[index] = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * segmentSize, segmentSize);
+            segments = current;
+        }
+        return current[index];
+    }
+}
+
+// Кодирование одной партии в буфер потока
+final class RecordEncoder {
+    byte[] bytes = new byte[256];
+    int length;
+
+    void encode(GameModel model) {
+        length = 0;
+        Fleet player = model.getPlayerFleet();
+        Fleet computer = model.getComputerFleet();
+        GameConfig config = model.getConfig();
+
+        writeVarint(config.getBoardSize());
+        writeLong(model.getGameSeed());
+        writeVarint(config.getShipCount());
+        for (int i = 0; i < config.getShipCount(); i++) {
+            writeVarint(config.getShipSize(i));
+        }
+        writeFleet(player);
+        writeFleet(computer);
+        writeVarint(model.getMoveCount());
+        for (int i = 0; i < model.getMoveCount(); i++) {
+            writeVarint(model.getMove(i));
+        }
+    }
+
+    // Корабли ставятся по порядку флота, так что расставленные - это первые getShipCount()
+    private void writeFleet(Fleet fleet) {
+        writeVarint(fleet.getShipCount());
+        for (int id = 0; id < fleet.getShipCount(); id++) {
+            int anchor = fleet.getShipCell(id, 0);
+            writeVarint(anchor * 2L + (fleet.isShipHorizontal(id) ? 0 : 1));
+        }
+    }
+
+    private void writeLong(long value) {
+        ensure(8);
+        for (int i = 0; i < 8; i++) {
+            bytes[length++] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    private void writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int putVarint(MappedByteBuffer buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put(offset++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put(offset++, (byte) value);
+        return offset;
+    }
+}
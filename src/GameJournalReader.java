@@ -0,0 +1,225 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Последовательное чтение журнала GameJournal. В памяти отображен только текущий сегмент,
+// партия декодируется в переиспользуемый GameRecord:
+//   java GameJournalReader файл - сводка по всем партиям журнала
+class GameJournalReader implements Closeable {
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int segmentSize;
+    private long position = GameJournal.HEADER_SIZE;
+    private long segmentStart = -1;
+    private MappedByteBuffer segment;
+
+    public GameJournalReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GameJournal.HEADER_SIZE);
+        if (fileSize < GameJournal.HEADER_SIZE || header.getInt(0) != GameJournal.MAGIC) {
+            throw new IOException("Файл не является журналом партий: " + file);
+        }
+        this.segmentSize = header.getInt(4);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long games = 0;
+        long playerWins = 0;
+        long moves = 0;
+        long start = System.nanoTime();
+        try (GameJournalReader reader = new GameJournalReader(Path.of(args[0]))) {
+            GameRecord record = new GameRecord();
+            while (reader.next(record)) {
+                games++;
+                moves += record.getMoveCount();
+                if (record.isPlayerWinner()) {
+                    playerWins++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Партий: %d, побед игрока: %.2f%%, выстрелов в партии: %.2f%n",
+                    games, games == 0 ? 0 : 100.0 * playerWins / games, games == 0 ? 0 : (double) moves / games);
+            System.out.printf("Размер файла: %d байт (%.1f байт на партию), чтение: %.0f партий/сек%n",
+                    reader.fileSize, games == 0 ? 0 : (double) reader.fileSize / games, games / seconds);
+        }
+    }
+
+    // Читает следующую партию в record; false, если журнал закончился
+    public boolean next(GameRecord record) throws IOException {
+        while (position < fileSize) {
+            long index = position / segmentSize;
+            if (segmentStart != index * segmentSize) {
+                segmentStart = index * segmentSize;
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart,
+                        Math.min(segmentSize, fileSize - segmentStart));
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            int offset = (int) (position - segmentStart);
+            if (segment.get(offset) == 0) {
+                // Хвост сегмента или место, зарезервированное под не поместившуюся запись
+                position++;
+                continue;
+            }
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = segment.get(offset++);
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            record.decode(segment, offset, length);
+            position = segmentStart + offset + length;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
+
+// Одна партия из журнала. Чей выстрел, восстанавливается по расстановкам:
+// первым стреляет игрок, после промаха ход переходит к сопернику
+class GameRecord {
+    private int boardSize;
+    private long seed;
+    private int shipCount;
+    private int[] shipSizes = new int[16];
+    private int[] playerShips = new int[16];
+    private int[] computerShips = new int[16];
+    private int playerPlaced;   // прерванная на расстановке партия расставила не весь флот
+    private int computerPlaced;
+    private int moveCount;
+    private int[] moves = new int[128];
+    private boolean[] playerMove = new boolean[128];
+    private boolean playerWinner;
+    private boolean computerWinner;
+    private CellSet playerCells;
+    private CellSet computerCells;
+    private MappedByteBuffer buffer;
+    private int cursor;
+
+    void decode(MappedByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        cursor = offset;
+        boardSize = (int) readVarint();
+        seed = buffer.getLong(cursor);
+        cursor += 8;
+        shipCount = (int) readVarint();
+        if (shipSizes.length < shipCount) {
+            shipSizes = new int[shipCount];
+            playerShips = new int[shipCount];
+            computerShips = new int[shipCount];
+        }
+        for (int i = 0; i < shipCount; i++) {
+            shipSizes[i] = (int) readVarint();
+        }
+        playerPlaced = readFleet(playerShips);
+        computerPlaced = readFleet(computerShips);
+        moveCount = (int) readVarint();
+        if (moves.length < moveCount) {
+            moves = new int[moveCount];
+            playerMove = new boolean[moveCount];
+        }
+        for (int i = 0; i < moveCount; i++) {
+            moves[i] = (int) readVarint();
+        }
+        if (cursor != offset + length) {
+            throw new IllegalStateException("Поврежденная запись журнала");
+        }
+        replay();
+    }
+
+    private void replay() {
+        if (playerCells == null || playerCells.getSize() != boardSize) {
+            GameConfig config = GameConfig.classic(boardSize);
+            playerCells = CellSet.create(config);
+            computerCells = CellSet.create(config);
+        }
+        placeAll(playerCells, playerShips, playerPlaced);
+        placeAll(computerCells, computerShips, computerPlaced);
+
+        int total = 0;
+        for (int i = 0; i < shipCount; i++) {
+            total += shipSizes[i];
+        }
+        int playerHits = 0;
+        int computerHits = 0;
+        boolean playerTurn = true;
+        for (int i = 0; i < moveCount; i++) {
+            playerMove[i] = playerTurn;
+            boolean hit = (playerTurn ? computerCells : playerCells).get(moves[i]);
+            if (hit) {
+                if (playerTurn) {
+                    playerHits++;
+                } else {
+                    computerHits++;
+                }
+            } else {
+                playerTurn = !playerTurn;
+            }
+        }
+        playerWinner = playerHits == total;
+        computerWinner = computerHits == total;
+    }
+
+    private int readFleet(int[] ships) {
+        int placed = (int) readVarint();
+        if (placed > shipCount) {
+            throw new IllegalStateException("Поврежденная запись журнала");
+        }
+        for (int i = 0; i < placed; i++) {
+            ships[i] = (int) readVarint();
+        }
+        return placed;
+    }
+
+    // Победа - все клетки всего флота подбиты, так что у неполной расстановки ее не бывает
+    private void placeAll(CellSet cells, int[] ships, int placed) {
+        cells.clear();
+        for (int i = 0; i < placed; i++) {
+            int anchor = ships[i] >>> 1;
+            cells.placeShip(anchor % boardSize, anchor / boardSize, shipSizes[i], (ships[i] & 1) == 0);
+        }
+    }
+
+    private long readVarint() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(cursor++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    public int getBoardSize() { return boardSize; }
+    public long getSeed() { return seed; }
+    public int getShipCount() { return shipCount; }
+    public int getShipSize(int i) { return shipSizes[i]; }
+    public int getPlayerPlacedCount() { return playerPlaced; }
+    public int getComputerPlacedCount() { return computerPlaced; }
+    public int getPlayerShipX(int i) { return (playerShips[i] >>> 1) % boardSize; }
+    public int getPlayerShipY(int i) { return (playerShips[i] >>> 1) / boardSize; }
+    public boolean isPlayerShipHorizontal(int i) { return (playerShips[i] & 1) == 0; }
+    public int getComputerShipX(int i) { return (computerShips[i] >>> 1) % boardSize; }
+    public int getComputerShipY(int i) { return (computerShips[i] >>> 1) / boardSize; }
+    public boolean isComputerShipHorizontal(int i) { return (computerShips[i] & 1) == 0; }
+    public int getMoveCount() { return moveCount; }
+    public int getMove(int i) { return moves[i]; }
+    public boolean isPlayerMove(int i) { return playerMove[i]; }
+    public boolean isPlayerWinner() { return playerWinner; }
+    public boolean isComputerWinner() { return computerWinner; }
+}
@@ -0,0 +1,140 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Нагрузочный клиент для GameServer: sessions партий, из них concurrency одновременно,
+// каждая на своем виртуальном потоке и своем соединении. Клиент стреляет в случайные клетки.
+// Без адреса сервер запускается в этом же процессе на свободном порту.
+//   java GameLoadClient [партий] [одновременно] [сложность] [хост:порт]
+class GameLoadClient {
+    private final String host;
+    private final int port;
+    private final String difficulty;
+    private final LatencyHistogram shotLatency = new LatencyHistogram();
+    private final AtomicLong shots = new AtomicLong();
+    private final AtomicLong sessionsDone = new AtomicLong();
+
+    GameLoadClient(String host, int port, String difficulty) {
+        this.host = host;
+        this.port = port;
+        this.difficulty = difficulty;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        String difficulty = args.length > 2 ? args[2] : "Средний";
+
+        GameServer localServer = null;
+        String host = "localhost";
+        int port;
+        if (args.length > 3) {
+            String[] address = args[3].split(":");
+            host = address[0];
+            port = Integer.parseInt(address[1]);
+        } else {
+            localServer = new GameServer(0, GameConfig.CLASSIC);
+            localServer.start();
+            port = localServer.getPort();
+        }
+
+        try {
+            GameLoadClient client = new GameLoadClient(host, port, difficulty);
+            client.run(sessions, concurrency);
+        } finally {
+            if (localServer != null) {
+                localServer.close();
+            }
+        }
+    }
+
+    public void run(int sessions, int concurrency) throws Exception {
+        long start = System.nanoTime();
+        AtomicLong nextSession = new AtomicLong();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                long seed = i;
+                workers.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    while (nextSession.getAndIncrement() < sessions) {
+                        playSession(random);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Партий: %d (одновременно %d), %.1f сек%n", sessionsDone.get(), concurrency, seconds);
+        System.out.printf("Партий/сек: %.0f, выстрелов/сек: %.0f%n", sessionsDone.get() / seconds, shots.get() / seconds);
+        System.out.printf("Задержка выстрела, мкс: p50 %.1f, p99 %.1f, p99.9 %.1f, макс %.1f%n",
+                shotLatency.percentile(0.50) / 1e3, shotLatency.percentile(0.99) / 1e3,
+                shotLatency.percentile(0.999) / 1e3, shotLatency.max() / 1e3);
+    }
+
+    private void playSession(Random random) {
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            expectOk(call(in, out, "NEW " + difficulty));
+            expectOk(call(in, out, "AUTO"));
+
+            // Размер поля задает сервер; у удаленного он может быть не классическим
+            String state = call(in, out, "STATE");
+            expectOk(state);
+            String[] fields = state.split(" ");
+            int size = Integer.parseInt(fields[fields.length - 1]);
+            int[] cells = new int[size * size];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = i;
+            }
+            // Случайный порядок клеток без повторов
+            for (int remaining = cells.length; remaining > 0; remaining--) {
+                int k = random.nextInt(remaining);
+                int cell = cells[k];
+                cells[k] = cells[remaining - 1];
+
+                long started = System.nanoTime();
+                String response = call(in, out, "SHOOT " + (cell % size) + " " + (cell / size));
+                shotLatency.record(System.nanoTime() - started);
+                shots.incrementAndGet();
+                expectOk(response);
+                if (response.endsWith(" WIN") || response.endsWith(" LOSE")) break;
+            }
+            call(in, out, "QUIT");
+            sessionsDone.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String call(BufferedReader in, BufferedWriter out, String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        return command.equals("QUIT") ? null : in.readLine();
+    }
+
+    private static void expectOk(String response) {
+        if (response == null || !response.startsWith("OK")) {
+            throw new IllegalStateException("Ошибка сервера: " + response);
+        }
+    }
+}
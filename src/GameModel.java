@@ -1,14 +1,42 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.awt.Point;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 
 class GameModel {
-    public static final int BOARD_SIZE = 10;
-    private static final int[] SHIP_SIZES = {4, 3, 3, 2, 2, 2, 1, 1, 1, 1};
-
-    private final int[][] playerBoard;
-    private final int[][] computerBoard;
-    private final boolean[][] playerShots;
-    private final boolean[][] computerShots;
+    private static final int SNAPSHOT_VERSION = 3;
+    // Номера потоков случайных чисел партии (GameRandom.streamSeed)
+    private static final int PLACEMENT_STREAM = 0;
+    private static final int COMPUTER_STREAM = 1;
+    private static final int PLAYER_STREAM = 2;
+    private static final int NEXT_GAME_STREAM = 3;
+    // Номера сложностей в снимке - часть формата: новые только дописываются в конец, порядок не меняется.
+    // Сложность не из таблицы пишется строкой под номером CUSTOM_DIFFICULTY
+    private static final String[] SNAPSHOT_DIFFICULTIES = {"Легкий", "Средний", "Сложный", "Эксперт", "Мастер"};
+    private static final int CUSTOM_DIFFICULTY = 15;
+    // Сколько случайных позиций пробовать на корабль при расстановке на разреженном поле
+    private static final int SPARSE_PLACEMENT_ATTEMPTS = 1000;
+
+    // Размер поля и состав флота задаются на партию; при смене параметров поля создаются заново
+    private GameConfig config;
+    private int boardSize;
+    private int[] shipSizes;
+
+    // Движок работает с упакованными полями, массивы ниже - только представление для GameView
+    // (на разреженных полях их нет)
+    private CellSet playerShips;
+    private CellSet computerShips;
+    private CellSet playerShotBits;
+    private CellSet computerShotBits;
+    private Fleet playerFleet;
+    private Fleet computerFleet;
+
+    private int[][] playerBoard;
+    private int[][] computerBoard;
+    private boolean[][] playerShots;
+    private boolean[][] computerShots;
     private int playerScore;
     private int computerScore;
     private int shipsPlaced;
@@ -20,32 +48,130 @@ class GameModel {
     private boolean currentShipHorizontal;
 
     private final EventManager eventManager;
-    private final Random random;
-    private final ArrayList<Point> playerShipPositions;
+    // Зерно партии. Из него выводятся независимые потоки: расстановки, ИИ компьютера, ИИ игрока
+    // и зерно следующей партии, поэтому партия с тем же зерном повторяется в точности
+    private long gameSeed;
+    private final GameRandom placementRandom = new GameRandom();
+    private final GameRandom computerRandom = new GameRandom();
+    private final GameRandom playerRandom = new GameRandom();
+    // Все выстрелы партии по порядку (индексы клеток); чей выстрел, следует из правил:
+    // первым стреляет игрок, ход переходит после промаха
+    private int[] moves = new int[128];
+    private int moveCount;
+    // Стратегии ИИ и генератор с множествами позиций могут занимать память по площади поля,
+    // поэтому создаются только когда понадобятся
+    private ShotStrategy computerStrategy;
+    // Ход компьютера, считающийся в другом потоке (computeComputerShot); номер отличает его от отмененных
+    private CompletableFuture<ComputerShot> pendingComputerShot;
+    private long computerShotGeneration;
+    private ShotStrategy playerStrategy;
+    private String playerStrategyName;
+    private FleetGenerator fleetGenerator;
 
     public GameModel() {
-        playerBoard = new int[BOARD_SIZE][BOARD_SIZE];
-        computerBoard = new int[BOARD_SIZE][BOARD_SIZE];
-        playerShots = new boolean[BOARD_SIZE][BOARD_SIZE];
-        computerShots = new boolean[BOARD_SIZE][BOARD_SIZE];
+        this(GameConfig.CLASSIC);
+    }
+
+    public GameModel(GameConfig config) {
+        this(config, ThreadLocalRandom.current().nextLong());
+    }
+
+    // Первая партия модели идет с зерном seed, следующие - с зернами, выведенными из него
+    public GameModel(GameConfig config, long seed) {
+        this(config, seed, true);
+    }
+
+    private GameModel(GameConfig config, long seed, boolean reset) {
         eventManager = new EventManager();
-        random = new Random();
-        playerShipPositions = new ArrayList<>();
         difficulty = "Средний";
         placementMode = true;
         currentShipIndex = 0;
         currentShipHorizontal = true;
-        resetGame();
+        configure(config);
+        if (reset) {
+            resetGame(seed);
+        }
+    }
+
+    private void configure(GameConfig config) {
+        this.config = config;
+        boardSize = config.getBoardSize();
+        shipSizes = config.getShipSizes();
+        playerShips = CellSet.create(config);
+        computerShips = CellSet.create(config);
+        playerShotBits = CellSet.create(config);
+        computerShotBits = CellSet.create(config);
+        playerFleet = new Fleet(boardSize, shipSizes.length, config.isSparse());
+        computerFleet = new Fleet(boardSize, shipSizes.length, config.isSparse());
+        if (config.isSparse()) {
+            playerBoard = null;
+            computerBoard = null;
+            playerShots = null;
+            computerShots = null;
+        } else {
+            playerBoard = new int[boardSize][boardSize];
+            computerBoard = new int[boardSize][boardSize];
+            playerShots = new boolean[boardSize][boardSize];
+            computerShots = new boolean[boardSize][boardSize];
+        }
+        computerStrategy = null;
+        playerStrategy = null;
+        fleetGenerator = null;
+    }
+
+    // Новая партия с другими (или теми же) параметрами поля и флота. Расстановка флота компьютера
+    // сначала проверяется с тем же зерном, с которым пойдет партия; если флот не встает,
+    // бросается IllegalArgumentException, и модель остается прежней
+    public void resetGame(GameConfig config) {
+        long seed = GameRandom.streamSeed(gameSeed, NEXT_GAME_STREAM);
+        GameRandom random = new GameRandom(GameRandom.streamSeed(seed, PLACEMENT_STREAM));
+        boolean same = config.equals(this.config);
+        FleetGenerator generator = null;
+        boolean fits;
+        if (config.isSparse()) {
+            fits = sparseFleetFits(config, random);
+        } else {
+            // Генератор детерминирован по random, так что его можно взять для самой расстановки
+            generator = same && fleetGenerator != null ? fleetGenerator
+                    : new FleetGenerator(config.getBoardSize(), config.getShipSizes());
+            fits = generator.generate(random);
+        }
+        if (!fits) {
+            throw new IllegalArgumentException("Флот " + Arrays.toString(config.getShipSizes())
+                    + " не удалось расставить на поле " + config.getBoardSize() + "x" + config.getBoardSize());
+        }
+        if (!same) {
+            configure(config);
+        }
+        if (generator != null) {
+            fleetGenerator = generator;
+        }
+        resetGame(seed);
     }
 
     public void resetGame() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            Arrays.fill(playerBoard[i], 0);
-            Arrays.fill(computerBoard[i], 0);
-            Arrays.fill(playerShots[i], false);
-            Arrays.fill(computerShots[i], false);
+        resetGame(GameRandom.streamSeed(gameSeed, NEXT_GAME_STREAM));
+    }
+
+    public void resetGame(long seed) {
+        cancelComputerShot();
+        playerShips.clear();
+        playerFleet.clear();
+        playerShotBits.clear();
+        computerShotBits.clear();
+        if (playerBoard != null) {
+            for (int i = 0; i < boardSize; i++) {
+                Arrays.fill(playerBoard[i], 0);
+                Arrays.fill(playerShots[i], false);
+                Arrays.fill(computerShots[i], false);
+            }
         }
 
+        seedStreams(seed);
+        moveCount = 0;
+        // Старый флот компьютера снимается с поля без событий по клеткам - очистка покрывает оба поля
+        eventManager.fire(this, CompactEvent.header(CompactEvent.BOARD_CLEARED, 0, boardSize, 0), 0);
+
         playerScore = 0;
         computerScore = 0;
         shipsPlaced = 0;
@@ -54,96 +180,143 @@ class GameModel {
         placementMode = true;
         currentShipIndex = 0;
         currentShipHorizontal = true;
-        playerShipPositions.clear();
+        if (playerStrategy != null) {
+            playerStrategy.reset();
+        }
+        if (computerStrategy != null) {
+            computerStrategy.reset();
+        }
 
         generateComputerShips();
         // Убрали autoPlacePlayerShips() - теперь игрок расставляет сам
 
-        eventManager.fireEvent(new ScoreChangedEvent(this, "Расставьте ваши корабли! Текущий корабль: " + getCurrentShipSize() + " клетки", playerScore));
+        firePlacementEvent(CompactEvent.PLACEMENT_STARTED, 0);
+    }
+
+    private void seedStreams(long seed) {
+        gameSeed = seed;
+        placementRandom.setSeed(GameRandom.streamSeed(seed, PLACEMENT_STREAM));
+        computerRandom.setSeed(GameRandom.streamSeed(seed, COMPUTER_STREAM));
+        playerRandom.setSeed(GameRandom.streamSeed(seed, PLAYER_STREAM));
     }
 
-    private void generateComputerShips() {
-        for (int shipSize : SHIP_SIZES) {
-            boolean placed = false;
-            while (!placed) {
-                int x = random.nextInt(BOARD_SIZE);
-                int y = random.nextInt(BOARD_SIZE);
-                boolean horizontal = random.nextBoolean();
+    void generateComputerShips() {
+        placeRandomFleet(computerShips, computerFleet, computerBoard);
+    }
 
-                if (canPlaceShip(computerBoard, x, y, shipSize, horizontal, true)) {
-                    placeShip(computerBoard, x, y, shipSize, horizontal);
-                    placed = true;
-                }
+    // Расставляет весь флот заново на пустом поле
+    private void placeRandomFleet(CellSet ships, Fleet fleet, int[][] board) {
+        ships.clear();
+        fleet.clear();
+        if (board != null) {
+            for (int i = 0; i < boardSize; i++) {
+                Arrays.fill(board[i], 0);
+            }
+        }
+
+        if (config.isSparse()) {
+            placeSparseFleet(ships, fleet);
+            return;
+        }
+
+        if (fleetGenerator == null) {
+            fleetGenerator = new FleetGenerator(boardSize, shipSizes);
+        }
+        if (!fleetGenerator.generate(placementRandom)) {
+            throw new IllegalStateException("Не удалось расставить флот на поле " + boardSize + "x" + boardSize);
+        }
+        for (int i = 0; i < shipSizes.length; i++) {
+            placeShip(ships, fleet, board, fleetGenerator.getShipX(i),
+                    fleetGenerator.getShipY(i), shipSizes[i], fleetGenerator.isShipHorizontal(i));
+        }
+    }
+
+    // На огромном поле флот занимает ничтожную долю площади, и случайная позиция почти всегда подходит;
+    // множества позиций FleetGenerator здесь заняли бы память по площади поля
+    private void placeSparseFleet(CellSet ships, Fleet fleet) {
+        for (int shipSize : shipSizes) {
+            long position = randomSparsePosition(ships, shipSize, placementRandom);
+            if (position < 0) {
+                throw new IllegalStateException("Не удалось расставить флот на поле " + boardSize + "x" + boardSize);
             }
+            int cell = (int) (position >>> 1);
+            placeShip(ships, fleet, null, cell % boardSize, cell / boardSize, shipSize, (position & 1) != 0);
         }
     }
 
+    // Та же расстановка на пустом поле без модели - проверка перед сменой параметров (resetGame(GameConfig))
+    private static boolean sparseFleetFits(GameConfig config, Random random) {
+        CellSet ships = CellSet.create(config);
+        for (int shipSize : config.getShipSizes()) {
+            long position = randomSparsePosition(ships, shipSize, random);
+            if (position < 0) return false;
+            int cell = (int) (position >>> 1);
+            ships.placeShip(cell % config.getBoardSize(), cell / config.getBoardSize(), shipSize, (position & 1) != 0);
+        }
+        return true;
+    }
+
+    // Случайная позиция корабля, не касающаяся уже поставленных: клетка начала * 2 + горизонтальность,
+    // или -1, если за SPARSE_PLACEMENT_ATTEMPTS попыток такой не нашлось
+    private static long randomSparsePosition(CellSet ships, int length, Random random) {
+        int size = ships.getSize();
+        for (int attempts = 0; attempts < SPARSE_PLACEMENT_ATTEMPTS; attempts++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            boolean horizontal = random.nextBoolean();
+            if (ships.canPlaceShip(x, y, length, horizontal)) {
+                return ((long) y * size + x) << 1 | (horizontal ? 1 : 0);
+            }
+        }
+        return -1;
+    }
+
     public boolean placePlayerShip(int x, int y) {
         if (!placementMode || gameStarted) return false;
 
-        int shipSize = SHIP_SIZES[currentShipIndex];
-
-        if (canPlaceShip(playerBoard, x, y, shipSize, currentShipHorizontal, false)) {
-            placeShip(playerBoard, x, y, shipSize, currentShipHorizontal);
+        long start = Metrics.start();
+        int shipSize = shipSizes[currentShipIndex];
+        boolean horizontal = currentShipHorizontal;
+        boolean placed = playerShips.canPlaceShip(x, y, shipSize, horizontal);
 
-            // Сохраняем позиции корабля
-            for (int i = 0; i < shipSize; i++) {
-                int shipX = currentShipHorizontal ? x + i : x;
-                int shipY = currentShipHorizontal ? y : y + i;
-                playerShipPositions.add(new Point(shipX, shipY));
-            }
+        if (placed) {
+            placeShip(playerShips, playerFleet, playerBoard, x, y, shipSize, horizontal);
 
             shipsPlaced++;
             currentShipIndex++;
 
-            if (currentShipIndex < SHIP_SIZES.length) {
-                eventManager.fireEvent(new ScoreChangedEvent(this,
-                        "Корабль размещен! Следующий: " + getCurrentShipSize() + " клетки. " +
-                                "Кораблей осталось: " + (SHIP_SIZES.length - currentShipIndex), playerScore));
+            if (currentShipIndex < shipSizes.length) {
+                firePlacementEvent(CompactEvent.SHIP_PLACED, 0);
             } else {
                 placementMode = false;
                 gameStarted = true;
-                eventManager.fireEvent(new ScoreChangedEvent(this,
-                        "Все корабли расставлены! Игра начинается! Ваш ход.", playerScore));
+                fireScoreEvent(CompactEvent.PLACEMENT_FINISHED);
             }
-            return true;
         }
-        return false;
+        Metrics.placement(start, x, y, shipSize, horizontal, placed);
+        return placed;
     }
 
-    public boolean canPlaceShip(int[][] board, int x, int y, int size, boolean horizontal, boolean forComputer) {
-        // Проверка выхода за границы
-        if (horizontal) {
-            if (x + size > BOARD_SIZE) return false;
-        } else {
-            if (y + size > BOARD_SIZE) return false;
-        }
-
-        // Проверка занятости клеток и области вокруг
-        for (int i = -1; i <= size; i++) {
-            for (int j = -1; j <= 1; j++) {
-                int checkX, checkY;
-
-                if (horizontal) {
-                    checkX = x + i;
-                    checkY = y + j;
-                } else {
-                    checkX = x + j;
-                    checkY = y + i;
-                }
+    public boolean canPlaceShip(CellSet ships, int x, int y, int size, boolean horizontal) {
+        // Проверка границ и области вокруг корабля - одна операция AND с маской "корабль + ореол"
+        return ships.canPlaceShip(x, y, size, horizontal);
+    }
 
-                // Проверяем только для игрока (для компьютера можно ослабить правила)
-                if (checkX >= 0 && checkX < BOARD_SIZE && checkY >= 0 && checkY < BOARD_SIZE) {
-                    if (board[checkX][checkY] != 0) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+    public boolean canPlacePlayerShip(int x, int y, int size, boolean horizontal) {
+        return playerShips.canPlaceShip(x, y, size, horizontal);
     }
 
-    private void placeShip(int[][] board, int x, int y, int size, boolean horizontal) {
+    private void placeShip(CellSet ships, Fleet fleet, int[][] board, int x, int y, int size, boolean horizontal) {
+        ships.placeShip(x, y, size, horizontal);
+        fleet.addShip(x, y, size, horizontal);
+        int kind = ships == playerShips ? CompactEvent.PLAYER_CELL : CompactEvent.COMPUTER_CELL;
+        for (int i = 0; i < size; i++) {
+            fireCellEvent(kind, horizontal ? x + i : x, horizontal ? y : y + i,
+                    CompactEvent.CELL_EMPTY, CompactEvent.CELL_SHIP);
+        }
+        if (board == null) {
+            return;
+        }
         if (horizontal) {
             for (int i = 0; i < size; i++) {
                 board[x + i][y] = size;
@@ -158,42 +331,48 @@ class GameModel {
     public void rotateCurrentShip() {
         if (placementMode) {
             currentShipHorizontal = !currentShipHorizontal;
-            eventManager.fireEvent(new ScoreChangedEvent(this,
-                    "Ориентация изменена. Текущий корабль: " + getCurrentShipSize() + " клетки (" +
-                            (currentShipHorizontal ? "горизонтально" : "вертикально") + ")", playerScore));
+            firePlacementEvent(CompactEvent.SHIP_ROTATED, currentShipHorizontal ? CompactEvent.HORIZONTAL : 0);
         }
     }
 
     public int getCurrentShipSize() {
-        if (currentShipIndex < SHIP_SIZES.length) {
-            return SHIP_SIZES[currentShipIndex];
+        if (currentShipIndex < shipSizes.length) {
+            return shipSizes[currentShipIndex];
         }
         return 0;
     }
 
     public boolean playerShoot(int x, int y) {
-        if (!gameStarted || !playerTurn || playerShots[x][y]) return false;
+        if (!gameStarted || !playerTurn || playerShotBits.get(x, y)) return false;
 
-        playerShots[x][y] = true;
+        playerShotBits.set(x, y);
+        recordMove(playerShotBits.index(x, y));
+        if (playerShots != null) {
+            playerShots[x][y] = true;
+        }
+        fireShotCellEvent(CompactEvent.COMPUTER_CELL, x, y, computerShips.get(x, y));
 
-        if (computerBoard[x][y] > 0) {
+        if (computerShips.get(x, y)) {
             playerScore++;
-            boolean destroyed = checkShipDestroyed(computerBoard, playerShots, x, y);
+            int shipId = computerFleet.shipAt(x, y);
+            boolean destroyed = computerFleet.registerHit(shipId);
+            if (playerStrategy != null) {
+                playerStrategy.onShot(playerShotBits.index(x, y), true, destroyed);
+            }
 
-            eventManager.fireEvent(new ShipHitEvent(this,
-                    "Попадание! Стреляйте снова.", x, y, destroyed));
-            eventManager.fireEvent(new ScoreChangedEvent(this,
-                    "Счет: " + playerScore + " - " + computerScore, playerScore));
+            fireHitEvent(CompactEvent.PLAYER_HIT, x, y, destroyed, shipId, computerFleet.getShipLength(shipId));
+            fireScoreEvent(CompactEvent.SCORE);
 
             if (playerScore == getTotalShipCells()) {
-                eventManager.fireEvent(new GameOverEvent(this,
-                        "Поздравляем! Вы победили!", true));
+                fireScoreEvent(CompactEvent.PLAYER_WON);
                 gameStarted = false;
             }
             return true;
         } else {
-            eventManager.fireEvent(new ScoreChangedEvent(this,
-                    "Промах! Ход компьютера.", playerScore));
+            if (playerStrategy != null) {
+                playerStrategy.onShot(playerShotBits.index(x, y), false, false);
+            }
+            fireMissEvent(CompactEvent.PLAYER_MISSED, x, y);
             playerTurn = false;
             return false;
         }
@@ -202,141 +381,399 @@ class GameModel {
     public void computerShoot() {
         if (!gameStarted || playerTurn) return;
 
-        int x, y;
-
-        switch (difficulty) {
-            case "Легкий":
-                do {
-                    x = random.nextInt(BOARD_SIZE);
-                    y = random.nextInt(BOARD_SIZE);
-                } while (computerShots[x][y]);
-                break;
-            case "Сложный":
-                Point smartShot = findSmartShot();
-                if (smartShot != null) {
-                    x = smartShot.x;
-                    y = smartShot.y;
-                } else {
-                    do {
-                        x = random.nextInt(BOARD_SIZE);
-                        y = random.nextInt(BOARD_SIZE);
-                    } while (computerShots[x][y]);
-                }
-                break;
-            default:
-                if (random.nextDouble() < 0.7) {
-                    do {
-                        x = random.nextInt(BOARD_SIZE);
-                        y = random.nextInt(BOARD_SIZE);
-                    } while (computerShots[x][y]);
-                } else {
-                    Point smartShot2 = findSmartShot();
-                    if (smartShot2 != null) {
-                        x = smartShot2.x;
-                        y = smartShot2.y;
-                    } else {
-                        do {
-                            x = random.nextInt(BOARD_SIZE);
-                            y = random.nextInt(BOARD_SIZE);
-                        } while (computerShots[x][y]);
-                    }
-                }
-                break;
+        long start = Metrics.start();
+        if (computerStrategy == null) {
+            computerStrategy = ShotStrategies.create(difficulty, config);
+        }
+        computerStrategy.setTimeBudget(0);
+        applyComputerShot(computerStrategy.nextShot(computerShotBits, playerFleet, computerRandom), start);
+    }
+
+    // Ход компьютера для интерфейса: стратегия выбирает клетку в executor по копиям выстрелов, флота
+    // и генератора, модель при этом не меняется. Результат применяется applyComputerShot в потоке модели.
+    // Новый расчет отменяет прежний; стратегия занята расчетом до его конца и в это время не трогается
+    public CompletableFuture<ComputerShot> computeComputerShot(Executor executor) {
+        return computeComputerShot(executor, 0);
+    }
+
+    // То же с ограничением времени на ход (ShotStrategy.setTimeBudget, 0 - без ограничения);
+    // ход, упершийся в ограничение, по зерну уже не повторяется
+    public CompletableFuture<ComputerShot> computeComputerShot(Executor executor, long timeBudgetNanos) {
+        if (!gameStarted || playerTurn) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Сейчас не ход компьютера"));
+        }
+        cancelComputerShot();
+        if (computerStrategy == null) {
+            computerStrategy = ShotStrategies.create(difficulty, config);
         }
+        long start = Metrics.start();
+        long generation = computerShotGeneration;
+        ShotStrategy strategy = computerStrategy;
+        strategy.setTimeBudget(timeBudgetNanos);
+        CellSet shots = computerShotBits.copy();
+        Fleet fleet = playerFleet.copy();
+        GameRandom random = computerRandom.copy();
+        CompletableFuture<ComputerShot> future = CompletableFuture.supplyAsync(() -> {
+            int target = strategy.nextShot(shots, fleet, random);
+            return new ComputerShot(generation, target, random.getDraws(), start);
+        }, executor);
+        pendingComputerShot = future;
+        return future;
+    }
+
+    // Применяет посчитанный ход; false, если расчет отменен или партия с тех пор изменилась
+    public boolean applyComputerShot(ComputerShot shot) {
+        if (shot.generation() != computerShotGeneration || !gameStarted || playerTurn) return false;
+        pendingComputerShot = null;
+        computerRandom.skip(shot.draws());
+        applyComputerShot(shot.target(), shot.start());
+        return true;
+    }
 
-        computerShots[x][y] = true;
+    // Отменяет расчет хода компьютера, если он идет. Стратегию, которой он пользуется, модель
+    // больше не трогает - следующий ход начнется с новой
+    public void cancelComputerShot() {
+        computerShotGeneration++;
+        if (pendingComputerShot != null) {
+            if (!pendingComputerShot.isDone()) {
+                computerStrategy = null;
+            }
+            pendingComputerShot.cancel(false);
+            pendingComputerShot = null;
+        }
+    }
 
-        if (playerBoard[x][y] > 0) {
+    // Расчет запущен, а его ход еще не применен и не отменен
+    public boolean isComputerShotPending() {
+        return pendingComputerShot != null;
+    }
+
+    private void applyComputerShot(int target, long start) {
+        int x = target % boardSize;
+        int y = target / boardSize;
+
+        computerShotBits.set(target);
+        recordMove(target);
+        if (computerShots != null) {
+            computerShots[x][y] = true;
+        }
+
+        boolean hit = playerShips.get(target);
+        fireShotCellEvent(CompactEvent.PLAYER_CELL, x, y, hit);
+        if (hit) {
             computerScore++;
-            boolean destroyed = checkShipDestroyed(playerBoard, computerShots, x, y);
+            int shipId = playerFleet.shipAt(target);
+            boolean destroyed = playerFleet.registerHit(shipId);
+            computerStrategy.onShot(target, true, destroyed);
 
-            eventManager.fireEvent(new ShipHitEvent(this,
-                    "Компьютер попал в ваше судно!", x, y, destroyed));
-            eventManager.fireEvent(new ScoreChangedEvent(this,
-                    "Счет: " + playerScore + " - " + computerScore, playerScore));
+            fireHitEvent(CompactEvent.COMPUTER_HIT, x, y, destroyed, shipId, playerFleet.getShipLength(shipId));
+            fireScoreEvent(CompactEvent.SCORE);
 
             if (computerScore == getTotalShipCells()) {
-                eventManager.fireEvent(new GameOverEvent(this,
-                        "Компьютер победил! Попробуйте еще раз.", false));
+                fireScoreEvent(CompactEvent.COMPUTER_WON);
                 gameStarted = false;
             }
         } else {
+            computerStrategy.onShot(target, false, false);
             playerTurn = true;
-            eventManager.fireEvent(new ScoreChangedEvent(this,
-                    "Компьютер промахнулся! Ваш ход.", playerScore));
-        }
-    }
-
-    private Point findSmartShot() {
-        for (int x = 0; x < BOARD_SIZE; x++) {
-            for (int y = 0; y < BOARD_SIZE; y++) {
-                if (computerShots[x][y] && playerBoard[x][y] > 0) {
-                    int[][] directions = {{0,1}, {1,0}, {0,-1}, {-1,0}};
-                    for (int[] dir : directions) {
-                        int newX = x + dir[0];
-                        int newY = y + dir[1];
-                        if (newX >= 0 && newX < BOARD_SIZE && newY >= 0 && newY < BOARD_SIZE &&
-                                !computerShots[newX][newY]) {
-                            return new Point(newX, newY);
-                        }
-                    }
-                }
+            fireMissEvent(CompactEvent.COMPUTER_MISSED, x, y);
+        }
+        Metrics.computerShot(start, difficulty, target, hit);
+    }
+
+    // Снимок партии в побитово упакованном виде (BitPacker), классическая партия - около 50 байт:
+    //   версия (байт), размер поля varint, флаг классического флота или число и длины кораблей varint,
+    //   сложность (4 бита, 15 - строка следом), флаги (расстановка, партия идет, ход игрока,
+    //   поворот текущего корабля, выстрелы списком), номер текущего корабля и число расставленных,
+    //   зерно партии (64 бита) и число выборок из каждого потока случайных чисел varint,
+    //   флоты (число кораблей, затем клетка якоря и вертикаль),
+    //   выстрелы: либо две битовые карты поля, либо, если так короче или нужна история, их список по порядку.
+    // Попадания, счет и потопленные корабли не пишутся - они следуют из выстрелов и расстановок.
+    // В варианте с картами история выстрелов (getMove, журнал) не сохраняется.
+    public void writeSnapshot(ByteBuffer out) {
+        writeSnapshot(out, false);
+    }
+
+    public void writeSnapshot(ByteBuffer out, boolean withHistory) {
+        int cells = boardSize * boardSize;
+        int cellBits = BitPacker.bitsFor(cells - 1);
+        int shipBits = BitPacker.bitsFor(shipSizes.length);
+        boolean moveList = withHistory || (long) moveCount * cellBits + 64 < 2L * cells;
+
+        BitPacker bits = new BitPacker(out);
+        bits.write(SNAPSHOT_VERSION, 8);
+        bits.writeVarint(boardSize);
+        boolean classicFleet = Arrays.equals(shipSizes, GameConfig.CLASSIC.getShipSizes());
+        bits.writeBoolean(classicFleet);
+        if (!classicFleet) {
+            bits.writeVarint(shipSizes.length);
+            for (int shipSize : shipSizes) {
+                bits.writeVarint(shipSize);
+            }
+        }
+        int difficultyIndex = Arrays.asList(SNAPSHOT_DIFFICULTIES).indexOf(difficulty);
+        if (difficultyIndex >= 0) {
+            bits.write(difficultyIndex, 4);
+        } else {
+            bits.write(CUSTOM_DIFFICULTY, 4);
+            byte[] name = difficulty.getBytes(StandardCharsets.UTF_8);
+            bits.writeVarint(name.length);
+            for (byte b : name) {
+                bits.write(b, 8);
+            }
+        }
+        bits.writeBoolean(placementMode);
+        bits.writeBoolean(gameStarted);
+        bits.writeBoolean(playerTurn);
+        bits.writeBoolean(currentShipHorizontal);
+        bits.writeBoolean(moveList);
+        bits.write(currentShipIndex, shipBits);
+        bits.write(shipsPlaced, shipBits);
+        bits.write(gameSeed, 64);
+        bits.writeVarint(placementRandom.getDraws());
+        bits.writeVarint(computerRandom.getDraws());
+        bits.writeVarint(playerRandom.getDraws());
+        writeFleet(bits, playerFleet, shipBits, cellBits);
+        writeFleet(bits, computerFleet, shipBits, cellBits);
+
+        if (moveList) {
+            bits.writeVarint(moveCount);
+            for (int i = 0; i < moveCount; i++) {
+                bits.write(moves[i], cellBits);
+            }
+        } else {
+            for (int cell = 0; cell < cells; cell++) {
+                bits.writeBoolean(playerShotBits.get(cell));
+            }
+            for (int cell = 0; cell < cells; cell++) {
+                bits.writeBoolean(computerShotBits.get(cell));
             }
         }
-        return null;
+        bits.finishWrite();
+    }
+
+    // Верхняя граница размера снимка в байтах - для выбора размера буфера
+    public int getMaxSnapshotSize() {
+        int cellBits = BitPacker.bitsFor((long) boardSize * boardSize - 1);
+        long fleets = 2L * shipSizes.length * (cellBits + 1);
+        long shots = Math.min((long) moveCount * cellBits + 64, 2L * boardSize * boardSize);
+        return (int) Math.min(Integer.MAX_VALUE, 64 + 10L * shipSizes.length + difficulty.length() * 3L + (fleets + shots) / 8);
     }
 
-    private boolean checkShipDestroyed(int[][] board, boolean[][] shots, int x, int y) {
-        int shipSize = board[x][y];
-        // Проверяем все клетки корабля
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (board[i][j] == shipSize && !shots[i][j]) {
-                    return false; // Нашли неподбитую клетку корабля
+    // Читает снимок с текущей позиции буфера; позиция сдвигается за снимок
+    public static GameModel readSnapshot(ByteBuffer in) {
+        BitPacker bits = new BitPacker(in);
+        int version = bits.readInt(8);
+        if (version != SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("Неизвестная версия снимка партии: " + version);
+        }
+        int size = (int) bits.readVarint();
+        GameConfig config;
+        if (bits.readBoolean()) {
+            config = GameConfig.classic(size);
+        } else {
+            int[] sizes = new int[(int) bits.readVarint()];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = (int) bits.readVarint();
+            }
+            config = new GameConfig(size, sizes);
+        }
+        GameModel model = new GameModel(config, 0, false);
+        int cells = size * size;
+        int cellBits = BitPacker.bitsFor(cells - 1);
+        int shipBits = BitPacker.bitsFor(config.getShipCount());
+
+        int difficultyIndex = bits.readInt(4);
+        if (difficultyIndex == CUSTOM_DIFFICULTY) {
+            byte[] name = new byte[(int) bits.readVarint()];
+            for (int i = 0; i < name.length; i++) {
+                name[i] = (byte) bits.read(8);
+            }
+            model.difficulty = new String(name, StandardCharsets.UTF_8);
+        } else if (difficultyIndex < SNAPSHOT_DIFFICULTIES.length) {
+            model.difficulty = SNAPSHOT_DIFFICULTIES[difficultyIndex];
+        } else {
+            throw new IllegalArgumentException("Неизвестная сложность в снимке партии: " + difficultyIndex);
+        }
+        boolean placementMode = bits.readBoolean();
+        boolean gameStarted = bits.readBoolean();
+        boolean playerTurn = bits.readBoolean();
+        model.currentShipHorizontal = bits.readBoolean();
+        boolean moveList = bits.readBoolean();
+        model.currentShipIndex = bits.readInt(shipBits);
+        model.shipsPlaced = bits.readInt(shipBits);
+        model.seedStreams(bits.read(64));
+        model.placementRandom.skip(bits.readVarint());
+        model.computerRandom.skip(bits.readVarint());
+        model.playerRandom.skip(bits.readVarint());
+        model.readFleet(bits, model.playerShips, model.playerFleet, model.playerBoard, shipBits, cellBits);
+        model.readFleet(bits, model.computerShips, model.computerFleet, model.computerBoard, shipBits, cellBits);
+
+        if (moveList) {
+            int moveCount = (int) bits.readVarint();
+            boolean byPlayer = true;
+            for (int i = 0; i < moveCount; i++) {
+                int cell = bits.readInt(cellBits);
+                model.recordMove(cell);
+                if (!model.applyShot(cell, byPlayer)) {
+                    byPlayer = !byPlayer;
                 }
             }
+        } else {
+            for (int cell = 0; cell < cells; cell++) {
+                if (bits.readBoolean()) model.applyShot(cell, true);
+            }
+            for (int cell = 0; cell < cells; cell++) {
+                if (bits.readBoolean()) model.applyShot(cell, false);
+            }
+        }
+        bits.finishRead();
+
+        model.placementMode = placementMode;
+        model.gameStarted = gameStarted;
+        model.playerTurn = playerTurn;
+        return model;
+    }
+
+    private static void writeFleet(BitPacker bits, Fleet fleet, int shipBits, int cellBits) {
+        bits.write(fleet.getShipCount(), shipBits);
+        for (int id = 0; id < fleet.getShipCount(); id++) {
+            bits.write(fleet.getShipCell(id, 0), cellBits);
+            bits.writeBoolean(!fleet.isShipHorizontal(id));
+        }
+    }
+
+    private void readFleet(BitPacker bits, CellSet ships, Fleet fleet, int[][] board, int shipBits, int cellBits) {
+        int count = bits.readInt(shipBits);
+        if (count > shipSizes.length) {
+            throw new IllegalArgumentException("Поврежденный снимок партии: кораблей " + count);
+        }
+        for (int id = 0; id < count; id++) {
+            int anchor = bits.readInt(cellBits);
+            boolean horizontal = !bits.readBoolean();
+            placeShip(ships, fleet, board, anchor % boardSize, anchor / boardSize, shipSizes[id], horizontal);
+        }
+    }
+
+    // Выстрел при восстановлении снимка: меняет поля, флот и счет так же, как playerShoot/computerShoot,
+    // но без событий и без записи в историю
+    private boolean applyShot(int cell, boolean byPlayer) {
+        CellSet shots = byPlayer ? playerShotBits : computerShotBits;
+        CellSet ships = byPlayer ? computerShips : playerShips;
+        Fleet fleet = byPlayer ? computerFleet : playerFleet;
+        boolean[][] view = byPlayer ? playerShots : computerShots;
+
+        shots.set(cell);
+        if (view != null) {
+            view[cell % boardSize][cell / boardSize] = true;
+        }
+        if (!ships.get(cell)) return false;
+
+        fleet.registerHit(fleet.shipAt(cell));
+        if (byPlayer) {
+            playerScore++;
+        } else {
+            computerScore++;
+        }
+        return true;
+    }
+
+    private void recordMove(int cell) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moveCount * 2);
         }
-        return true; // Все клетки корабля подбиты
+        moves[moveCount++] = cell;
+    }
+
+    // События уходят в упакованном виде; объекты и текст сообщений появляются только у слушателей, которым они нужны
+    private void fireScoreEvent(int kind) {
+        eventManager.fire(this, CompactEvent.header(kind, 0, 0, 0), CompactEvent.payload(playerScore, computerScore));
+    }
+
+    private void fireMissEvent(int kind, int x, int y) {
+        eventManager.fire(this, CompactEvent.header(kind, 0, x, y), CompactEvent.payload(playerScore, computerScore));
+    }
+
+    private void firePlacementEvent(int kind, int flags) {
+        eventManager.fire(this, CompactEvent.header(kind, flags, getCurrentShipSize(), shipSizes.length - currentShipIndex),
+                CompactEvent.payload(playerScore, computerScore));
+    }
+
+    private void fireCellEvent(int kind, int x, int y, int oldState, int newState) {
+        eventManager.fire(this, CompactEvent.header(kind, oldState << 4 | newState, x, y), 0);
+    }
+
+    private void fireShotCellEvent(int kind, int x, int y, boolean hit) {
+        fireCellEvent(kind, x, y, hit ? CompactEvent.CELL_SHIP : CompactEvent.CELL_EMPTY,
+                hit ? CompactEvent.CELL_HIT : CompactEvent.CELL_MISS);
+    }
+
+    private void fireHitEvent(int kind, int x, int y, boolean destroyed, int shipId, int shipLength) {
+        eventManager.fire(this, CompactEvent.header(kind, destroyed ? CompactEvent.DESTROYED : 0, x, y),
+                CompactEvent.payload(shipId, shipLength));
+    }
+
+    // Посчитанный в другом потоке ход компьютера: клетка и сколько выборок генератора на нее ушло
+    record ComputerShot(long generation, int target, long draws, long start) {
     }
 
-    private int getTotalShipCells() {
-        int total = 0;
-        for (int size : SHIP_SIZES) {
-            total += size;
+    // Выстрел игрока, выбранный ИИ заданной сложности (для игр без интерфейса)
+    public boolean playerAutoShoot(String playerDifficulty) {
+        if (!gameStarted || !playerTurn) return false;
+
+        if (playerStrategy == null || !playerDifficulty.equals(playerStrategyName)) {
+            playerStrategy = ShotStrategies.create(playerDifficulty, config);
+            playerStrategyName = playerDifficulty;
         }
-        return total;
+        int target = playerStrategy.nextShot(playerShotBits, computerFleet, playerRandom);
+        return playerShoot(target % boardSize, target / boardSize);
+    }
+
+    boolean checkShipDestroyed(Fleet fleet, int x, int y) {
+        // У каждого корабля свой счетчик оставшихся попаданий, поэтому проверка не зависит от размера поля
+        int shipId = fleet.shipAt(x, y);
+        return shipId >= 0 && fleet.isSunk(shipId);
+    }
+
+    public int getTotalShipCells() {
+        return config.getTotalShipCells();
     }
 
     public void applySettings(String difficulty,  String theme) {
+        if (!difficulty.equals(this.difficulty)) {
+            // Ход, который считает прежняя стратегия, уже не применится: у новой своя история выстрелов
+            cancelComputerShot();
+            computerStrategy = null;
+        }
         this.difficulty = difficulty;
     }
 
     public void autoPlacePlayerShips() {
-        for (int shipSize : SHIP_SIZES) {
-            boolean placed = false;
-            while (!placed) {
-                int x = random.nextInt(BOARD_SIZE);
-                int y = random.nextInt(BOARD_SIZE);
-                boolean horizontal = random.nextBoolean();
-
-                if (canPlaceShip(playerBoard, x, y, shipSize, horizontal, false)) {
-                    placeShip(playerBoard, x, y, shipSize, horizontal);
-                    for (int i = 0; i < shipSize; i++) {
-                        int shipX = horizontal ? x + i : x;
-                        int shipY = horizontal ? y : y + i;
-                        playerShipPositions.add(new Point(shipX, shipY));
-                    }
-                    placed = true;
-                }
+        // Расстановка всегда с чистого поля, уже поставленные вручную корабли убираются
+        for (int id = 0; id < playerFleet.getShipCount(); id++) {
+            for (int i = 0; i < playerFleet.getShipLength(id); i++) {
+                int cell = playerFleet.getShipCell(id, i);
+                fireCellEvent(CompactEvent.PLAYER_CELL, cell % boardSize, cell / boardSize,
+                        CompactEvent.CELL_SHIP, CompactEvent.CELL_EMPTY);
             }
         }
-        shipsPlaced = SHIP_SIZES.length;
+        placeRandomFleet(playerShips, playerFleet, playerBoard);
+        shipsPlaced = shipSizes.length;
         placementMode = false;
         gameStarted = true;
-        currentShipIndex = SHIP_SIZES.length;
+        currentShipIndex = shipSizes.length;
+        fireScoreEvent(CompactEvent.PLACEMENT_FINISHED);
     }
 
     // Getters
+    public GameConfig getConfig() { return config; }
+    public int getBoardSize() { return boardSize; }
+    public CellSet getPlayerShips() { return playerShips; }
+    public CellSet getComputerShips() { return computerShips; }
+    public Fleet getPlayerFleet() { return playerFleet; }
+    public Fleet getComputerFleet() { return computerFleet; }
+    public CellSet getPlayerShotBits() { return playerShotBits; }
+    public CellSet getComputerShotBits() { return computerShotBits; }
     public int[][] getPlayerBoard() { return playerBoard; }
     public int[][] getComputerBoard() { return computerBoard; }
     public boolean[][] getPlayerShots() { return playerShots; }
@@ -349,13 +786,46 @@ class GameModel {
     public boolean isPlacementMode() { return placementMode; }
     public int getCurrentShipIndex() { return currentShipIndex; }
     public boolean isCurrentShipHorizontal() { return currentShipHorizontal; }
-    public int getTotalShips() { return SHIP_SIZES.length; }
+    public int getTotalShips() { return shipSizes.length; }
+    public int getPlayerShotCount() { return playerShotBits.cardinality(); }
+    public int getComputerShotCount() { return computerShotBits.cardinality(); }
+    public long getGameSeed() { return gameSeed; }
+    public int getMoveCount() { return moveCount; }
+    public int getMove(int index) { return moves[index]; }
 
     public int getShipsPlaced() {
         return shipsPlaced;
     }
 
+    // Примерный объем партии в куче, байт: упакованные поля, индексы флотов, массивы для GameView,
+    // генератор расстановки и состояние стратегий ИИ. Мелкие поля не считаются
+    public long estimateFootprint() {
+        long footprint = playerShips.estimateFootprint() + computerShips.estimateFootprint()
+                + playerShotBits.estimateFootprint() + computerShotBits.estimateFootprint()
+                + playerFleet.estimateFootprint() + computerFleet.estimateFootprint()
+                + 4L * moves.length + 512;
+        if (playerBoard != null) {
+            // int[][] и boolean[][]: заголовок каждой строки плюс ее элементы
+            footprint += 2L * boardSize * (16 + 4L * boardSize) + 2L * boardSize * (16 + boardSize);
+        }
+        if (fleetGenerator != null) {
+            footprint += fleetGenerator.estimateFootprint();
+        }
+        if (computerStrategy != null) {
+            footprint += computerStrategy.estimateFootprint();
+        }
+        if (playerStrategy != null) {
+            footprint += playerStrategy.estimateFootprint();
+        }
+        return footprint;
+    }
+
     public void setShipsPlaced(int shipsPlaced) {
         this.shipsPlaced = shipsPlaced;
     }
+
+    // Для замеров GameModelTimings: передать ход, не делая выстрела
+    void setPlayerTurn(boolean playerTurn) {
+        this.playerTurn = playerTurn;
+    }
 }
\ No newline at end of file
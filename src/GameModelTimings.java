@@ -0,0 +1,464 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+// Грубые замеры горячих методов GameModel: время на операцию и байты аллокаций на операцию
+// (счетчик аллокаций потока). Это не средство бенчмаркинга: все замеры идут в одной JVM друг за другом,
+// без отдельных форков, прогрев - несколько итераций, от удаления мертвого кода защищает только запись
+// в volatile-поле sink. Цифры годятся для сравнения прогонов на одной машине и поиска заметных регрессий.
+// JMH здесь не подключить: он не принимает классы из пакета по умолчанию, а в нем весь проект.
+//   java GameModelTimings [-sizes 10] [-fleetSizes 10,50,500] [-warmup 5] [-iterations 10] [-time 200] [-filter regex]
+//                         [-save файл] [-baseline файл] [-tolerance 0.10]
+// С -baseline программа завершается с кодом 1, если какой-то замер стал медленнее допуска.
+class GameModelTimings {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static volatile long sink;
+
+    private int[] sizes = {GameConfig.CLASSIC.getBoardSize()};
+    private int[] fleetSizes = {10, 50, 500};
+    private int warmupIterations = 5;
+    private int measurementIterations = 10;
+    private long iterationMillis = 200;
+    private Pattern filter = Pattern.compile(".*");
+
+    public static void main(String[] args) throws IOException {
+        GameModelTimings timing = new GameModelTimings();
+        Path save = null;
+        Path baseline = null;
+        double tolerance = 0.10;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-sizes" -> timing.sizes = parseSizes(args[++i]);
+                case "-fleetSizes" -> timing.fleetSizes = parseSizes(args[++i]);
+                case "-warmup" -> timing.warmupIterations = Integer.parseInt(args[++i]);
+                case "-iterations" -> timing.measurementIterations = Integer.parseInt(args[++i]);
+                case "-time" -> timing.iterationMillis = Long.parseLong(args[++i]);
+                case "-filter" -> timing.filter = Pattern.compile(args[++i]);
+                case "-save" -> save = Path.of(args[++i]);
+                case "-baseline" -> baseline = Path.of(args[++i]);
+                case "-tolerance" -> tolerance = Double.parseDouble(args[++i]);
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + args[i]);
+            }
+        }
+
+        List<Result> results = timing.runAll();
+
+        if (save != null) {
+            saveResults(results, save);
+        }
+        if (baseline != null && !compareWithBaseline(results, baseline, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    public List<Result> runAll() {
+        List<Result> results = new ArrayList<>();
+        System.out.printf("%-30s %6s %14s %10s %12s%n", "Замер", "Поле", "нс/оп", "± ошибка", "байт/оп");
+        for (int size : sizes) {
+            runTimings(createTimings(size), size, results);
+        }
+        for (int size : fleetSizes) {
+            runTimings(createFleetTimings(size), size, results);
+        }
+        return results;
+    }
+
+    private void runTimings(List<Timing> timings, int size, List<Result> results) {
+        for (Timing timing : timings) {
+            if (!filter.matcher(timing.name).find()) continue;
+            Result result = measure(timing.name, size, timing.operation);
+            results.add(result);
+            System.out.printf("%-30s %6d %14.1f %10.1f %12.1f%n",
+                    result.name, result.size, result.nsPerOp, result.nsError, result.bytesPerOp);
+        }
+    }
+
+    // Классический флот на поле заданного размера; поля больше GameConfig.DENSE_LIMIT - разреженные
+    static GameModel createModel(int size) {
+        return new GameModel(GameConfig.classic(size));
+    }
+
+    private List<Timing> createTimings(int size) {
+        List<Timing> timings = new ArrayList<>();
+        timings.add(new Timing("canPlaceShip", canPlaceShip(size)));
+        timings.add(new Timing("generateComputerShips", generateComputerShips(size)));
+        for (String difficulty : GameSimulator.DIFFICULTIES) {
+            timings.add(new Timing("computerShoot:" + difficulty, computerShoot(size, difficulty)));
+        }
+        timings.add(new Timing("findSmartShot", findSmartShot(size)));
+        timings.add(new Timing("checkShipDestroyed", checkShipDestroyed(size)));
+        timings.add(new Timing("resetGame", resetGame(size)));
+        return timings;
+    }
+
+    // Расстановка флота вне модели: классический флот, повторенный пропорционально площади поля
+    private List<Timing> createFleetTimings(int size) {
+        int copies = Math.max(1, size * size / 100);
+        int[] shipSizes = new int[copies * 10];
+        int[] classic = {4, 3, 3, 2, 2, 2, 1, 1, 1, 1};
+        for (int i = 0; i < shipSizes.length; i++) {
+            shipSizes[i] = classic[i % classic.length];
+        }
+
+        List<Timing> timings = new ArrayList<>();
+        timings.add(new Timing("fleet:generator", fleetGenerator(size, shipSizes)));
+        timings.add(new Timing("fleet:rejection", rejectionSampling(size, shipSizes)));
+        if (size == GameConfig.CLASSIC.getBoardSize()) {
+            // Плотный флот: почти предел того, что помещается на поле 10x10 без касаний
+            int[] dense = {4, 4, 4, 3, 3, 3, 3, 2, 2, 2, 2, 1, 1, 1, 1};
+            timings.add(new Timing("fleet:dense:generator", fleetGenerator(size, dense)));
+            timings.add(new Timing("fleet:dense:rejection", rejectionSampling(size, dense)));
+        }
+        return timings;
+    }
+
+    private static Operation fleetGenerator(int size, int[] shipSizes) {
+        FleetGenerator generator = new FleetGenerator(size, shipSizes, 64 * shipSizes.length + 4096);
+        Random random = new Random(42);
+        return (ops, watch) -> {
+            long failures = 0;
+            watch.resume();
+            for (int i = 0; i < ops; i++) {
+                if (!generator.generate(random)) {
+                    failures++;
+                }
+            }
+            watch.pause();
+            sink = failures;
+        };
+    }
+
+    // Прежний подход: случайная позиция до первой подходящей, при тупике - расстановка заново
+    private static Operation rejectionSampling(int size, int[] shipSizes) {
+        BitBoard board = new BitBoard(size);
+        Random random = new Random(42);
+        int maxAttempts = 100 * size * size;
+        return (ops, watch) -> {
+            long restarts = 0;
+            watch.resume();
+            for (int i = 0; i < ops; i++) {
+                board.clear();
+                for (int ship = 0; ship < shipSizes.length; ship++) {
+                    int attempts = 0;
+                    while (true) {
+                        int x = random.nextInt(size);
+                        int y = random.nextInt(size);
+                        boolean horizontal = random.nextBoolean();
+                        if (board.canPlaceShip(x, y, shipSizes[ship], horizontal)) {
+                            board.placeShip(x, y, shipSizes[ship], horizontal);
+                            break;
+                        }
+                        if (++attempts == maxAttempts) {
+                            board.clear();
+                            ship = -1;
+                            restarts++;
+                            break;
+                        }
+                    }
+                }
+            }
+            watch.pause();
+            sink = restarts;
+        };
+    }
+
+    private static Operation canPlaceShip(int size) {
+        GameModel model = createModel(size);
+        model.autoPlacePlayerShips();
+        CellSet ships = model.getPlayerShips();
+
+        // Заранее выбранные позиции, чтобы в замер не попал генератор случайных чисел
+        Random random = new Random(42);
+        int[] xs = new int[1024];
+        int[] ys = new int[1024];
+        int[] lengths = new int[1024];
+        boolean[] horizontal = new boolean[1024];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextInt(size);
+            ys[i] = random.nextInt(size);
+            lengths[i] = 1 + random.nextInt(4);
+            horizontal[i] = random.nextBoolean();
+        }
+
+        return (ops, watch) -> {
+            long count = 0;
+            watch.resume();
+            for (int i = 0; i < ops; i++) {
+                int k = i & 1023;
+                if (model.canPlaceShip(ships, xs[k], ys[k], lengths[k], horizontal[k])) {
+                    count++;
+                }
+            }
+            watch.pause();
+            sink = count;
+        };
+    }
+
+    private static Operation generateComputerShips(int size) {
+        GameModel model = createModel(size);
+        return (ops, watch) -> {
+            watch.resume();
+            for (int i = 0; i < ops; i++) {
+                model.generateComputerShips();
+            }
+            watch.pause();
+            sink = model.getComputerShips().cardinality();
+        };
+    }
+
+    // Замеряются только вызовы computerShoot; перезапуск партии и передача хода не учитываются
+    private static Operation computerShoot(int size, String difficulty) {
+        GameModel model = createModel(size);
+        model.applySettings(difficulty, null);
+        return (ops, watch) -> {
+            int done = 0;
+            while (done < ops) {
+                if (!model.isGameStarted()) {
+                    model.resetGame();
+                    model.autoPlacePlayerShips();
+                }
+                model.setPlayerTurn(false);
+
+                watch.resume();
+                while (done < ops && model.isGameStarted() && !model.isPlayerTurn()) {
+                    model.computerShoot();
+                    done++;
+                }
+                watch.pause();
+            }
+            sink = model.getComputerScore();
+        };
+    }
+
+    // Партия, в которой компьютер уже сделал часть выстрелов и есть недобитые корабли.
+    // На больших полях число выстрелов ограничено, иначе подготовка длилась бы дольше замера
+    private static GameModel midGameModel(int size) {
+        GameModel model = createModel(size);
+        model.applySettings("Легкий", null);
+        int shots = (int) Math.min((long) size * size * 2 / 5, 1 << 16);
+        do {
+            model.resetGame();
+            model.autoPlacePlayerShips();
+            while (model.isGameStarted() && (model.getComputerShotCount() < shots
+                    || HuntStrategy.findSmartShot(model.getComputerShotBits(), model.getPlayerFleet()) < 0)) {
+                model.setPlayerTurn(false);
+                model.computerShoot();
+            }
+        } while (!model.isGameStarted());
+        return model;
+    }
+
+    private static Operation findSmartShot(int size) {
+        GameModel model = midGameModel(size);
+        CellSet shots = model.getComputerShotBits();
+        Fleet fleet = model.getPlayerFleet();
+        return (ops, watch) -> {
+            long sum = 0;
+            watch.resume();
+            for (int i = 0; i < ops; i++) {
+                sum += HuntStrategy.findSmartShot(shots, fleet);
+            }
+            watch.pause();
+            sink = sum;
+        };
+    }
+
+    private static Operation checkShipDestroyed(int size) {
+        GameModel model = midGameModel(size);
+        CellSet shots = model.getComputerShotBits();
+        Fleet fleet = model.getPlayerFleet();
+
+        List<Integer> hitCells = new ArrayList<>();
+        for (int id = 0; id < fleet.getShipCount(); id++) {
+            for (int i = 0; i < fleet.getShipLength(id); i++) {
+                if (shots.get(fleet.getShipCell(id, i))) {
+                    hitCells.add(fleet.getShipCell(id, i));
+                }
+            }
+        }
+        int[] xs = new int[hitCells.size()];
+        int[] ys = new int[hitCells.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = hitCells.get(i) % size;
+            ys[i] = hitCells.get(i) / size;
+        }
+
+        return (ops, watch) -> {
+            long destroyed = 0;
+            int k = 0;
+            watch.resume();
+            for (int i = 0; i < ops; i++) {
+                if (model.checkShipDestroyed(fleet, xs[k], ys[k])) {
+                    destroyed++;
+                }
+                if (++k == xs.length) {
+                    k = 0;
+                }
+            }
+            watch.pause();
+            sink = destroyed;
+        };
+    }
+
+    private static Operation resetGame(int size) {
+        GameModel model = createModel(size);
+        return (ops, watch) -> {
+            watch.resume();
+            for (int i = 0; i < ops; i++) {
+                model.resetGame();
+            }
+            watch.pause();
+            sink = model.getComputerShips().cardinality();
+        };
+    }
+
+    private Result measure(String name, int size, Operation operation) {
+        // Подбираем число операций так, чтобы итерация длилась около iterationMillis
+        long targetNanos = iterationMillis * 1_000_000L;
+        int ops = 1;
+        while (true) {
+            Stopwatch watch = new Stopwatch();
+            operation.run(ops, watch);
+            if (watch.nanos >= targetNanos / 10 || ops >= Integer.MAX_VALUE / 20) {
+                ops = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, ops * (double) targetNanos / Math.max(1, watch.nanos)));
+                break;
+            }
+            ops *= 2;
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run(ops, new Stopwatch());
+        }
+
+        double[] nsPerOp = new double[measurementIterations];
+        double bytes = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            Stopwatch watch = new Stopwatch();
+            operation.run(ops, watch);
+            nsPerOp[i] = (double) watch.nanos / ops;
+            bytes += (double) watch.bytes / ops;
+        }
+
+        double mean = 0;
+        for (double value : nsPerOp) {
+            mean += value;
+        }
+        mean /= nsPerOp.length;
+        double variance = 0;
+        for (double value : nsPerOp) {
+            variance += (value - mean) * (value - mean);
+        }
+        double error = nsPerOp.length > 1 ? Math.sqrt(variance / (nsPerOp.length - 1)) : 0;
+
+        return new Result(name, size, mean, error, bytes / measurementIterations);
+    }
+
+    private static void saveResults(List<Result> results, Path file) throws IOException {
+        Properties properties = new Properties();
+        for (Result result : results) {
+            properties.setProperty(result.key(), String.valueOf(result.nsPerOp));
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(writer, "GameModelTimings, нс/оп");
+        }
+    }
+
+    private static boolean compareWithBaseline(List<Result> results, Path file, double tolerance) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+
+        boolean passed = true;
+        for (Result result : results) {
+            String value = baseline.getProperty(result.key());
+            if (value == null) continue;
+
+            double expected = Double.parseDouble(value);
+            double change = result.nsPerOp / expected - 1;
+            if (change > tolerance) {
+                passed = false;
+                System.out.printf("РЕГРЕССИЯ %s: %.1f нс/оп против %.1f (+%.0f%%)%n",
+                        result.key(), result.nsPerOp, expected, change * 100);
+            }
+        }
+        if (passed) {
+            System.out.println("Регрессий относительно " + file + " нет");
+        }
+        return passed;
+    }
+
+    private static int[] parseSizes(String value) {
+        String[] parts = value.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim());
+        }
+        return sizes;
+    }
+
+    interface Operation {
+        // Выполняет ops операций; замеряемый участок ограничивается вызовами watch.resume()/pause()
+        void run(int ops, Stopwatch watch);
+    }
+
+    static final class Stopwatch {
+        long nanos;
+        long bytes;
+        private long startNanos;
+        private long startBytes;
+
+        void resume() {
+            startBytes = THREADS.getCurrentThreadAllocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        void pause() {
+            long now = System.nanoTime();
+            nanos += now - startNanos;
+            bytes += THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+        }
+    }
+
+    private static final class Timing {
+        final String name;
+        final Operation operation;
+
+        Timing(String name, Operation operation) {
+            this.name = name;
+            this.operation = operation;
+        }
+    }
+
+    static final class Result {
+        final String name;
+        final int size;
+        final double nsPerOp;
+        final double nsError;
+        final double bytesPerOp;
+
+        Result(String name, int size, double nsPerOp, double nsError, double bytesPerOp) {
+            this.name = name;
+            this.size = size;
+            this.nsPerOp = nsPerOp;
+            this.nsError = nsError;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        String key() {
+            return name + "." + size;
+        }
+    }
+}
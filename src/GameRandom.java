@@ -0,0 +1,77 @@
+import java.util.Random;
+
+// Генератор SplitMix64. Состояние после n выборок - это зерно + n * GOLDEN_GAMMA, поэтому позицию
+// в последовательности можно сохранить числом выборок (getDraws) и вернуться к ней (skip), и продолжение
+// выпадет точно таким же. Независимые потоки для одной партии получаются из ее зерна через streamSeed.
+// Наследник Random подходит всем, кто принимает Random.
+// Не потокобезопасен - у каждого потока и каждой модели свои экземпляры.
+class GameRandom extends Random {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long STREAM_GAMMA = 0xD1B54A32D192ED03L;
+    private static final long INVERSE_GAMMA = inverse(GOLDEN_GAMMA);
+
+    private long origin;
+    private long state;
+
+    public GameRandom() {
+        super();
+    }
+
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    // Зерно потока number, выведенное из seed: разные номера дают несвязанные последовательности
+    static long streamSeed(long seed, long number) {
+        return mix(seed + mix((number + 1) * STREAM_GAMMA));
+    }
+
+    // Вызывается и из конструктора Random
+    @Override
+    public void setSeed(long seed) {
+        origin = seed;
+        state = seed;
+    }
+
+    // Копия в той же позиции последовательности
+    public GameRandom copy() {
+        GameRandom copy = new GameRandom(origin);
+        copy.state = state;
+        return copy;
+    }
+
+    // Сколько выборок сделано после setSeed
+    public long getDraws() {
+        return (state - origin) * INVERSE_GAMMA;
+    }
+
+    // Ставит генератор в позицию после draws выборок от зерна
+    public void skip(long draws) {
+        state = origin + draws * GOLDEN_GAMMA;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Обратное по модулю 2^64 для нечетного числа (метод Ньютона, каждая итерация удваивает число верных бит)
+    private static long inverse(long odd) {
+        long x = odd;
+        for (int i = 0; i < 5; i++) {
+            x *= 2 - odd * x;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,317 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Сервер без интерфейса: каждое TCP-соединение обслуживает свой виртуальный поток, партии живут
+// в SessionStore - простаивающие выгружаются на диск. Соединение получает новую партию при подключении;
+// партия переживает обрыв связи, и к ней можно вернуться командой RESUME.
+// Протокол строковый, одна команда - одна строка ответа (UTF-8):
+//   NEW [сложность] [размер поля]  -> OK <номер партии>       новая партия; поле не больше заданного серверу
+//   RESUME номер                   -> OK                      продолжить партию после переподключения
+//   PLACE x y                      -> OK <кораблей осталось>  поставить текущий корабль
+//   ROTATE                         -> OK H|V                  повернуть текущий корабль
+//   AUTO                           -> OK                      расставить флот игрока автоматически
+//   SHOOT x y                      -> OK <результат> [x,y,<результат> ...] [WIN|LOSE]
+//       результат: MISS, HIT, SUNK; после промаха игрока следуют выстрелы компьютера
+//   STATE                          -> OK PLACEMENT|PLAYING|OVER <счет игрока> <счет компьютера> <размер поля>
+//   QUIT                                                      завершить партию и отключиться
+//   WATCH номер                    -> OK                      стать зрителем партии; дальше вместо строк
+//                                                             идет двоичный поток SpectatorHub до отключения
+// Ошибки: ERR <сообщение>.
+//   java GameServer [порт] [размер поля] [память под партии, МБ] [простой до выгрузки, сек]
+class GameServer implements Closeable {
+    private static final long DEFAULT_MAX_RESIDENT_MB = 256;
+    private static final long DEFAULT_IDLE_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final long DEFAULT_EXPIRE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long EVICTION_PERIOD_MILLIS = 1000;
+    // Команды короткие, а соединений может быть очень много: буферы по умолчанию (8К символов) не нужны
+    private static final int LINE_BUFFER_SIZE = 256;
+
+    private final ServerSocket serverSocket;
+    private final SessionStore store;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong totalSessions = new AtomicLong();
+
+    public GameServer(int port, GameConfig config) throws IOException {
+        this(port, new SessionStore(config, DEFAULT_MAX_RESIDENT_MB << 20, DEFAULT_IDLE_MILLIS, DEFAULT_EXPIRE_MILLIS));
+    }
+
+    public GameServer(int port, SessionStore store) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024);
+        this.store = store;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        GameConfig config = args.length > 1 ? GameConfig.classic(Integer.parseInt(args[1])) : GameConfig.CLASSIC;
+        long maxResidentMb = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_MAX_RESIDENT_MB;
+        long idleMillis = args.length > 3 ? TimeUnit.SECONDS.toMillis(Long.parseLong(args[3])) : DEFAULT_IDLE_MILLIS;
+        GameServer server = new GameServer(port,
+                new SessionStore(config, maxResidentMb << 20, idleMillis, DEFAULT_EXPIRE_MILLIS));
+        System.out.printf("Сервер запущен на порту %d, поле: %s, память под партии: до %d МБ%n",
+                server.getPort(), config, maxResidentMb);
+        server.executor.execute(server::evictIdleSessions);
+        // Виртуальные потоки - демоны, поэтому соединения принимает основной поток
+        server.acceptConnections();
+    }
+
+    public void start() {
+        executor.execute(this::acceptConnections);
+        executor.execute(this::evictIdleSessions);
+    }
+
+    public int getPort() { return serverSocket.getLocalPort(); }
+    public int getActiveSessions() { return activeSessions.get(); }
+    public long getTotalSessions() { return totalSessions.get(); }
+    public SessionStore getStore() { return store; }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+        store.close();
+    }
+
+    private void evictIdleSessions() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Thread.sleep(EVICTION_PERIOD_MILLIS);
+                store.evictIdle();
+            } catch (InterruptedException e) {
+                return;
+            } catch (UncheckedIOException e) {
+                // Не удалось записать в файл подкачки: партии остаются в памяти до следующей попытки
+            }
+        }
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                return; // сервер закрыт
+            } catch (IOException e) {
+                // Ошибка одного подключения не останавливает прием остальных
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        totalSessions.incrementAndGet();
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), LINE_BUFFER_SIZE);
+             BufferedWriter out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), LINE_BUFFER_SIZE)) {
+            socket.setTcpNoDelay(true);
+            GameSession session = new GameSession(store, store.create());
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("QUIT")) {
+                    store.remove(session.getId());
+                    break;
+                }
+                if (line.startsWith("WATCH")) {
+                    if (watch(session, line, out, socket.getOutputStream())) break;
+                    continue;
+                }
+                out.write(session.handle(line));
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // Клиент отключился или не удалось поднять партию из файла подкачки
+        } catch (InterruptedException e) {
+            // Сервер останавливается
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    // Соединение становится зрителем: своя партия ему больше не нужна. false - команда отклонена
+    private boolean watch(GameSession session, String line, BufferedWriter out, OutputStream raw)
+            throws IOException, InterruptedException {
+        SpectatorHub hub;
+        try {
+            hub = store.watch(Long.parseLong(line.substring("WATCH".length()).trim()));
+        } catch (NumberFormatException e) {
+            out.write("ERR Неверные аргументы: " + line + "\n");
+            out.flush();
+            return false;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            out.write("ERR " + e.getMessage() + "\n");
+            out.flush();
+            return false;
+        }
+        store.remove(session.getId());
+        out.write("OK\n");
+        out.flush();
+        try {
+            hub.stream(raw);
+        } catch (IllegalStateException e) {
+            // Партию удалили, пока зритель подключался
+        }
+        return true;
+    }
+}
+
+// Соединение с сервером: разбирает команды протокола и применяет их к модели своей партии из SessionStore
+class GameSession {
+    private final SessionStore store;
+    private long id;
+
+    GameSession(SessionStore store, long id) {
+        this.store = store;
+        this.id = id;
+    }
+
+    long getId() { return id; }
+
+    String handle(String line) {
+        String[] parts = line.trim().split("\\s+");
+        try {
+            if (parts[0].equals("RESUME")) {
+                return resume(parts);
+            }
+            return store.withSession(id, model -> switch (parts[0]) {
+                case "NEW" -> newGame(model, parts);
+                case "PLACE" -> place(model, parts);
+                case "ROTATE" -> rotate(model);
+                case "AUTO" -> autoPlace(model);
+                case "SHOOT" -> shoot(model, parts);
+                case "STATE" -> state(model);
+                default -> "ERR Неизвестная команда: " + parts[0];
+            });
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return "ERR Неверные аргументы: " + line;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    // Партия, созданная соединением при подключении, заменяется продолжаемой
+    private String resume(String[] parts) {
+        long resumed = Long.parseLong(parts[1]);
+        if (resumed != id) {
+            if (!store.contains(resumed)) {
+                return "ERR Нет партии " + resumed;
+            }
+            store.remove(id);
+            id = resumed;
+        }
+        return "OK";
+    }
+
+    private String newGame(GameModel model, String[] parts) {
+        // Аргументы проверяются до изменения модели, чтобы отклоненная команда не меняла партию
+        String difficulty = parts.length > 1 ? parts[1] : null;
+        if (difficulty != null && !ShotStrategies.contains(difficulty)) {
+            return "ERR Неизвестная сложность: " + difficulty;
+        }
+        GameConfig config = null;
+        if (parts.length > 2) {
+            // Размер поля сервера - потолок: партия на огромном поле займет память, рассчитанную на сотни обычных
+            int size = Integer.parseInt(parts[2]);
+            if (size > store.getConfig().getBoardSize()) {
+                return "ERR Размер поля больше допустимого на сервере: " + size;
+            }
+            config = GameConfig.classic(size);
+        }
+
+        // resetGame(GameConfig) проверяет расстановку флота до изменения партии: отклоненный размер поля
+        // (например, слишком малый для флота) оставляет ее как была. Сложность меняется только после этого
+        model.resetGame(config != null ? config : model.getConfig());
+        if (difficulty != null) {
+            model.applySettings(difficulty, null);
+        }
+        return "OK " + id;
+    }
+
+    private String place(GameModel model, String[] parts) {
+        int x = Integer.parseInt(parts[1]);
+        int y = Integer.parseInt(parts[2]);
+        if (!model.isPlacementMode() || !inside(model, x, y) || !model.placePlayerShip(x, y)) {
+            return "ERR Нельзя поставить корабль в " + x + "," + y;
+        }
+        return "OK " + (model.getTotalShips() - model.getCurrentShipIndex());
+    }
+
+    private String rotate(GameModel model) {
+        if (!model.isPlacementMode()) {
+            return "ERR Все корабли уже расставлены";
+        }
+        model.rotateCurrentShip();
+        return model.isCurrentShipHorizontal() ? "OK H" : "OK V";
+    }
+
+    private String autoPlace(GameModel model) {
+        if (!model.isPlacementMode()) {
+            return "ERR Все корабли уже расставлены";
+        }
+        model.autoPlacePlayerShips();
+        return "OK";
+    }
+
+    private String shoot(GameModel model, String[] parts) {
+        int x = Integer.parseInt(parts[1]);
+        int y = Integer.parseInt(parts[2]);
+        if (!model.isGameStarted()) {
+            return "ERR Партия не идет";
+        }
+        if (!inside(model, x, y) || model.getPlayerShotBits().get(x, y)) {
+            return "ERR Нельзя стрелять в " + x + "," + y;
+        }
+
+        StringBuilder response = new StringBuilder("OK ");
+        model.playerShoot(x, y);
+        appendResult(response, model.getComputerFleet(), model.getComputerShips(), y * model.getBoardSize() + x);
+
+        // После промаха игрока компьютер стреляет, пока не промахнется или не победит
+        while (model.isGameStarted() && !model.isPlayerTurn()) {
+            model.computerShoot();
+            int cell = model.getMove(model.getMoveCount() - 1);
+            response.append(' ').append(cell % model.getBoardSize()).append(',').append(cell / model.getBoardSize()).append(',');
+            appendResult(response, model.getPlayerFleet(), model.getPlayerShips(), cell);
+        }
+
+        if (!model.isGameStarted()) {
+            response.append(model.getPlayerScore() == model.getTotalShipCells() ? " WIN" : " LOSE");
+        }
+        return response.toString();
+    }
+
+    private String state(GameModel model) {
+        String phase = model.isPlacementMode() ? "PLACEMENT" : model.isGameStarted() ? "PLAYING" : "OVER";
+        return "OK " + phase + " " + model.getPlayerScore() + " " + model.getComputerScore() + " " + model.getBoardSize();
+    }
+
+    private static void appendResult(StringBuilder response, Fleet fleet, CellSet ships, int cell) {
+        if (!ships.get(cell)) {
+            response.append("MISS");
+        } else {
+            response.append(fleet.isSunk(fleet.shipAt(cell)) ? "SUNK" : "HIT");
+        }
+    }
+
+    private static boolean inside(GameModel model, int x, int y) {
+        return x >= 0 && y >= 0 && x < model.getBoardSize() && y < model.getBoardSize();
+    }
+}
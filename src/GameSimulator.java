@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Безинтерфейсный симулятор: ИИ против ИИ на всех ядрах через fork-join.
+// Использует только GameModel, поэтому запускается без Swing.
+// Зерно партии номер i выводится из общего зерна и i, поэтому при том же зерне итоги совпадают
+// до бита при любом числе потоков (порядок записей в журнале при этом может отличаться). Ходы компьютера
+// здесь без ограничения времени, иначе итог зависел бы от скорости машины:
+//   java -Djava.awt.headless=true GameSimulator [игр] [соперник] [потоков] [размер поля] [файл журнала или -] [зерно]
+class GameSimulator {
+    static final String[] DIFFICULTIES = {"Легкий", "Средний", "Сложный", "Эксперт"};
+    private static final int GAMES_PER_TASK = 512;
+
+    private final ForkJoinPool pool;
+    private final GameConfig config;
+    private GameJournal journal;
+
+    public GameSimulator(int parallelism) {
+        this(parallelism, GameConfig.CLASSIC);
+    }
+
+    public GameSimulator(int parallelism, GameConfig config) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String opponent = args.length > 1 ? args[1] : "Средний";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        GameConfig config = args.length > 3 ? GameConfig.classic(Integer.parseInt(args[3])) : GameConfig.CLASSIC;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : ThreadLocalRandom.current().nextLong();
+
+        GameSimulator simulator = new GameSimulator(threads, config);
+        if (args.length > 4 && !args[4].equals("-")) {
+            simulator.journal = new GameJournal(Path.of(args[4]));
+        }
+        System.out.printf("Игр на сложность: %d, соперник: %s, потоков: %d, поле: %s, зерно: %d%n",
+                games, opponent, threads, config, seed);
+        System.out.printf("%-10s %12s %10s %14s %14s%n",
+                "Сложность", "Игр/сек", "Побед, %", "Выстрелов", "Выстр. соп.");
+        try {
+            for (int i = 0; i < DIFFICULTIES.length; i++) {
+                String difficulty = DIFFICULTIES[i];
+                SimulationStats stats = simulator.run(difficulty, opponent, games, GameRandom.streamSeed(seed, i));
+                System.out.printf("%-10s %12.0f %10.2f %14.2f %14.2f%n",
+                        difficulty, stats.gamesPerSecond(), stats.winRate() * 100,
+                        stats.meanShotsToWin(), stats.meanOpponentShotsToWin());
+            }
+        } finally {
+            simulator.shutdown();
+            if (Metrics.ENABLED) {
+                System.out.print(Metrics.report());
+            }
+            if (simulator.journal != null) {
+                System.out.printf("Журнал: %d байт%n", simulator.journal.size());
+                simulator.journal.close();
+            }
+        }
+    }
+
+    // Играет games партий difficulty против opponent. Стороны меняются каждую партию,
+    // чтобы право первого хода не влияло на процент побед.
+    public SimulationStats run(String difficulty, String opponent, int games, long seed) {
+        long start = System.nanoTime();
+        SimulationStats stats = pool.invoke(new SimulationTask(config, journal, difficulty, opponent, seed, 0, games));
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    static void playGame(GameModel model, long seed, String difficulty, String opponent, boolean difficultyIsComputer,
+                         SimulationStats stats) {
+        model.resetGame(seed);
+        model.applySettings(difficultyIsComputer ? difficulty : opponent, null);
+        model.autoPlacePlayerShips();
+
+        String playerDifficulty = difficultyIsComputer ? opponent : difficulty;
+        while (model.isGameStarted()) {
+            if (model.isPlayerTurn()) {
+                model.playerAutoShoot(playerDifficulty);
+            } else {
+                model.computerShoot();
+            }
+        }
+
+        boolean playerWon = model.getPlayerScore() == model.getTotalShipCells();
+        boolean won = playerWon != difficultyIsComputer;
+        int playerShots = model.getPlayerShotCount();
+        int computerShots = model.getComputerShotCount();
+
+        stats.games++;
+        if (won) {
+            stats.wins++;
+            stats.winnerShots += difficultyIsComputer ? computerShots : playerShots;
+        } else {
+            stats.opponentWinnerShots += difficultyIsComputer ? playerShots : computerShots;
+        }
+    }
+
+    static class SimulationTask extends RecursiveTask<SimulationStats> {
+        private final GameConfig config;
+        private final GameJournal journal;
+        private final String difficulty;
+        private final String opponent;
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        SimulationTask(GameConfig config, GameJournal journal, String difficulty, String opponent, long seed,
+                       int from, int to) {
+            this.config = config;
+            this.journal = journal;
+            this.difficulty = difficulty;
+            this.opponent = opponent;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                // Одна модель на задачу: между партиями она только сбрасывается
+                GameModel model = new GameModel(config);
+                SimulationStats stats = new SimulationStats();
+                for (int game = from; game < to; game++) {
+                    playGame(model, GameRandom.streamSeed(seed, game), difficulty, opponent, (game & 1) == 0, stats);
+                    if (journal != null) {
+                        appendToJournal(model);
+                    }
+                }
+                return stats;
+            }
+
+            int middle = (from + to) >>> 1;
+            SimulationTask left = new SimulationTask(config, journal, difficulty, opponent, seed, from, middle);
+            SimulationTask right = new SimulationTask(config, journal, difficulty, opponent, seed, middle, to);
+            left.fork();
+            SimulationStats result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+
+        private void appendToJournal(GameModel model) {
+            try {
+                journal.append(model);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    static class SimulationStats {
+        long games;
+        long wins;
+        long winnerShots;
+        long opponentWinnerShots;
+        long elapsedNanos;
+
+        void merge(SimulationStats other) {
+            games += other.games;
+            wins += other.wins;
+            winnerShots += other.winnerShots;
+            opponentWinnerShots += other.opponentWinnerShots;
+        }
+
+        public double winRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        // Среднее число выстрелов до победы в выигранных партиях
+        public double meanShotsToWin() {
+            return wins == 0 ? 0 : (double) winnerShots / wins;
+        }
+
+        public double meanOpponentShotsToWin() {
+            long losses = games - wins;
+            return losses == 0 ? 0 : (double) opponentWinnerShots / losses;
+        }
+
+        public double gamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -1,9 +1,33 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 class GameView extends JPanel implements GameEventListener {
+    private static final BasicStroke FRAME_STROKE = new BasicStroke(3);
+    private static final Color HIGHLIGHT_COLOR = new Color(255, 255, 0, 100);
+    private static final Color PREVIEW_VALID_COLOR = new Color(0, 255, 0, 100);
+    private static final Color PREVIEW_INVALID_COLOR = new Color(255, 0, 0, 100);
+    private static final Color[] EXPLOSION_COLORS = new Color[5];
+    private static final long BLINK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long EXPLOSION_NANOS = TimeUnit.MILLISECONDS.toNanos(300);
+    // Взрыв за время жизни разлетается в полтора раза и гаснет
+    private static final float EXPLOSION_GROWTH = 0.5f;
+
+    static {
+        for (int i = 0; i < EXPLOSION_COLORS.length; i++) {
+            EXPLOSION_COLORS[i] = new Color(255, 165, 0, 200 - i * 40);
+        }
+    }
+
     private GameBoardPanel playerBoardPanel;
     private GameBoardPanel computerBoardPanel;
     private JLabel statusLabel;
@@ -11,11 +35,17 @@ class GameView extends JPanel implements GameEventListener {
     private JLabel timerLabel;
     private JLabel placementLabel;
     private JTextField statusField;
-    private Timer animationTimer;
-    private Timer gameTimer;
+    // Мигание рамки, часы партии и взрывы идут от одних часов анимаций
+    private final FrameClock frameClock = new FrameClock();
+    private final FrameClock.Animation blinkAnimation = this::blink;
+    private final FrameClock.Animation gameClockAnimation = this::tickGameTime;
+    private long blinkStart;
+    private long gameTimeNanos;   // время партии до последней остановки часов
+    private long gameTimeResumed; // когда часы запущены в последний раз
     private int gameTime;
     private boolean cellHighlighted = false;
-    private final java.util.List<Point> explosionPoints;
+    private final List<Explosion> explosions = new ArrayList<>();
+    private int totalShips;
     private JButton rotateButton;
     private JButton autoPlaceButton;
     private JPanel controlPanel;
@@ -23,14 +53,12 @@ class GameView extends JPanel implements GameEventListener {
     public GameView() {
         setLayout(new BorderLayout());
         initializeUI();
-        explosionPoints = new ArrayList<>();
         applyCurrentTheme();
     }
 
     private void initializeUI() {
         createControlPanel();
         createGameBoards();
-        setupTimers();
     }
 
     private void createControlPanel() {
@@ -134,18 +162,28 @@ class GameView extends JPanel implements GameEventListener {
         }
     }
 
-    private void setupTimers() {
-        animationTimer = new Timer(500, e -> {
-            cellHighlighted = !cellHighlighted;
+    // Фаза мигания считается по времени от запуска, а не по числу срабатываний таймера
+    private long blink(long now) {
+        long periods = (now - blinkStart) / BLINK_NANOS;
+        boolean highlighted = periods % 2 == 1;
+        if (highlighted != cellHighlighted) {
+            cellHighlighted = highlighted;
             if (computerBoardPanel != null) {
-                computerBoardPanel.repaint();
+                computerBoardPanel.repaintFrame();
             }
-        });
+        }
+        return blinkStart + (periods + 1) * BLINK_NANOS;
+    }
 
-        gameTimer = new Timer(1000, e -> {
-            gameTime++;
+    // Часы партии будят кадр только на смене секунды
+    private long tickGameTime(long now) {
+        long elapsed = gameTimeNanos + now - gameTimeResumed;
+        int seconds = (int) (elapsed / SECOND_NANOS);
+        if (seconds != gameTime) {
+            gameTime = seconds;
             updateTimer();
-        });
+        }
+        return now + SECOND_NANOS - elapsed % SECOND_NANOS;
     }
 
     private void updateTimer() {
@@ -180,13 +218,13 @@ class GameView extends JPanel implements GameEventListener {
         }
     }
 
-    public void updateBoard(int[][] playerBoard, int[][] computerBoard,
+    public void updateBoard(int boardSize, int[][] playerBoard, int[][] computerBoard,
                             boolean[][] playerShots, boolean[][] computerShots) {
         if (playerBoardPanel != null) {
-            playerBoardPanel.updateBoard(playerBoard, computerShots);
+            playerBoardPanel.updateBoard(boardSize, playerBoard, computerShots);
         }
         if (computerBoardPanel != null) {
-            computerBoardPanel.updateBoard(computerBoard, playerShots);
+            computerBoardPanel.updateBoard(boardSize, computerBoard, playerShots);
         }
     }
 
@@ -203,53 +241,66 @@ class GameView extends JPanel implements GameEventListener {
     }
 
     public void setPlacementInfo(int placed, int total) {
+        totalShips = total;
         if (placementLabel != null) {
             placementLabel.setText("Корабли: " + placed + "/" + total);
         }
     }
 
-    public void setHighlightedCell(Point cell) {
+    // Клетка под курсором; x = -1 - курсор вне поля
+    public void setHighlightedCell(int x, int y) {
         if (computerBoardPanel != null) {
-            computerBoardPanel.setHighlightedCell(cell);
+            computerBoardPanel.setHighlightedCell(x, y);
         }
         if (playerBoardPanel != null) {
-            playerBoardPanel.setHighlightedCell(cell);
+            playerBoardPanel.setHighlightedCell(x, y);
         }
     }
 
     public void startAnimation() {
-        if (animationTimer != null) {
-            animationTimer.start();
+        long now = System.nanoTime();
+        if (!frameClock.isRunning(blinkAnimation)) {
+            blinkStart = now;
+            frameClock.start(blinkAnimation);
         }
-        if (gameTimer != null) {
-            gameTimer.start();
+        if (!frameClock.isRunning(gameClockAnimation)) {
+            gameTimeResumed = now;
+            frameClock.start(gameClockAnimation);
         }
     }
 
     public void stopAnimation() {
-        if (animationTimer != null) {
-            animationTimer.stop();
-        }
-        if (gameTimer != null) {
-            gameTimer.stop();
+        if (frameClock.isRunning(gameClockAnimation)) {
+            gameTimeNanos += System.nanoTime() - gameTimeResumed;
+            frameClock.stop(gameClockAnimation);
+        }
+        frameClock.stop(blinkAnimation);
+        // Рамка не остается гореть, пока ходит компьютер
+        if (cellHighlighted) {
+            cellHighlighted = false;
+            if (computerBoardPanel != null) {
+                computerBoardPanel.repaintFrame();
+            }
         }
     }
 
     public void resetTimer() {
+        gameTimeNanos = 0;
+        gameTimeResumed = System.nanoTime();
         gameTime = 0;
         updateTimer();
     }
 
     public void addExplosion(Point point) {
-        explosionPoints.add(point);
-        Timer explosionTimer = new Timer(300, e -> {
-            explosionPoints.remove(point);
-            if (computerBoardPanel != null) {
-                computerBoardPanel.repaint();
-            }
-        });
-        explosionTimer.setRepeats(false);
-        explosionTimer.start();
+        addExplosion(point, false);
+    }
+
+    public void addExplosion(Point point, boolean onPlayerBoard) {
+        GameBoardPanel panel = onPlayerBoard ? playerBoardPanel : computerBoardPanel;
+        if (panel == null) return;
+        Explosion explosion = new Explosion(panel, point.x, point.y, System.nanoTime());
+        explosions.add(explosion);
+        frameClock.start(explosion);
     }
 
     public void setPlacementMode(boolean placementMode) {
@@ -297,8 +348,14 @@ class GameView extends JPanel implements GameEventListener {
 
     @Override
     public void onGameEvent(GameEvent event) {
-        if (event instanceof ScoreChangedEvent scoreEvent) {
-            setStatus(scoreEvent.getMessage());
+        if (event instanceof CellChangedEvent cellEvent) {
+            applyCellChange(cellEvent);
+        } else if (event instanceof ScoreChangedEvent scoreEvent) {
+            // Счет виден в своей надписи; в строке состояния остается подсказка о ходе из события попадания
+            if (CompactEvent.kind(scoreEvent.getHeader()) != CompactEvent.SCORE) {
+                setStatus(scoreEvent.getMessage());
+            }
+            updateLabels(scoreEvent);
         } else if (event instanceof GameOverEvent gameOverEvent) {
             String message = gameOverEvent.getMessage();
             JOptionPane.showMessageDialog(this, message, "Игра окончена",
@@ -307,7 +364,41 @@ class GameView extends JPanel implements GameEventListener {
         } else if (event instanceof ShipHitEvent hitEvent) {
             setStatus(hitEvent.getMessage());
             if (hitEvent.isDestroyed()) {
-                addExplosion(new Point(hitEvent.getX(), hitEvent.getY()));
+                // Попадание компьютера - по полю игрока
+                boolean onPlayerBoard = CompactEvent.kind(hitEvent.getHeader()) == CompactEvent.COMPUTER_HIT;
+                addExplosion(new Point(hitEvent.getX(), hitEvent.getY()), onPlayerBoard);
+            }
+        }
+    }
+
+    // Поля меняются по одной клетке; массивы модели передаются только при первом показе (updateBoard)
+    private void applyCellChange(CellChangedEvent event) {
+        if (event.isCleared()) {
+            if (playerBoardPanel != null) {
+                playerBoardPanel.clearBoard(event.getBoardSize());
+            }
+            if (computerBoardPanel != null) {
+                computerBoardPanel.clearBoard(event.getBoardSize());
+            }
+            return;
+        }
+        GameBoardPanel panel = event.isPlayerBoard() ? playerBoardPanel : computerBoardPanel;
+        if (panel != null) {
+            panel.setCell(event.getX(), event.getY(), event.getNewState());
+        }
+    }
+
+    // Счет и расстановка приходят в самих событиях; JLabel перерисовывается, только если текст изменился
+    private void updateLabels(ScoreChangedEvent event) {
+        long header = event.getHeader();
+        if (header == 0) return;
+        long payload = event.getPayload();
+        setScore(CompactEvent.playerScore(payload), CompactEvent.computerScore(payload));
+        switch (CompactEvent.kind(header)) {
+            case CompactEvent.PLACEMENT_STARTED -> setPlacementInfo(0, CompactEvent.y(header));
+            case CompactEvent.SHIP_PLACED -> setPlacementInfo(totalShips - CompactEvent.y(header), totalShips);
+            case CompactEvent.PLACEMENT_FINISHED -> setPlacementInfo(totalShips, totalShips);
+            default -> {
             }
         }
     }
@@ -321,13 +412,44 @@ class GameView extends JPanel implements GameEventListener {
     }
 
     class GameBoardPanel extends JPanel {
+        private static final int TILE_SHIFT = 4;   // плитка плотности - 16x16 клеток
+        private static final int TILE_PIXELS = 2;  // меньше плитка на экране не рисуется, иначе корабли пропадут
+        private static final int MAX_DIRTY_CELLS = 1024;
+
         private final String title;
         private final boolean interactive;
-        private int[][] board;
-        private boolean[][] shots;
-        private Point highlightedCell;
+        private int boardSize = GameConfig.CLASSIC.getBoardSize();
+        private boolean loaded; // поле получено (updateBoard или clearBoard)
+        // Состояния клеток CompactEvent.CELL_*: массивом на плотном поле, на разреженном - только непустые
+        private byte[] cells;
+        private final Map<Integer, Byte> sparseCells = new HashMap<>();
+        // Непустые плитки 16x16: число клеток в каждом состоянии BoardPainter, в нулевом - всего непустых.
+        // По ним рисуется поле, когда клетка меньше пикселя
+        private final Map<Integer, int[]> tiles = new HashMap<>();
+        private final BoardViewport viewport = new BoardViewport();
+        private int highlightX = -1; // -1 - курсор вне поля
+        private int highlightY = -1;
         private MouseAdapter mouseListener;
         private boolean showPlacementPreview;
+        private Point dragPoint; // предыдущая точка перетаскивания поля
+
+        // Кэш отрисовки: фон с сеткой и подписями, слой содержимого клеток и изображения клеток по состояниям.
+        // Слои размером с панель и содержат только видимую часть поля
+        private BufferedImage background;
+        private BufferedImage cellLayer;
+        private BufferedImage[] cellImages;
+        private BufferedImage tileImage; // плитки плотности в пикселях панели
+        // Клетки, изменившиеся с прошлой отрисовки; allDirty - перерисовать слой клеток целиком
+        private int[] dirtyCells = new int[16];
+        private int dirtyCount;
+        private boolean allDirty = true;
+        private int layerWidth;
+        private int layerHeight;
+        private int layerVersion;
+        private ColorTheme layerTheme;
+        private double layerScale;
+        private int layerCellSize;
+        private boolean layerCellMode;
 
         public GameBoardPanel(String title, boolean interactive) {
             this.title = title;
@@ -335,6 +457,40 @@ class GameView extends JPanel implements GameEventListener {
             setPreferredSize(new Dimension(400, 400));
             this.showPlacementPreview = !interactive;
             applyTheme();
+
+            // Колесо мыши - масштаб вокруг курсора, перетаскивание - сдвиг увеличенного поля
+            MouseAdapter viewportListener = new MouseAdapter() {
+                @Override
+                public void mouseWheelMoved(MouseWheelEvent e) {
+                    updateLayout();
+                    if (viewport.zoomAt(e.getX(), e.getY(), -e.getPreciseWheelRotation())) {
+                        repaint();
+                    }
+                }
+
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    dragPoint = e.getPoint();
+                }
+
+                @Override
+                public void mouseReleased(MouseEvent e) {
+                    dragPoint = null;
+                }
+
+                @Override
+                public void mouseDragged(MouseEvent e) {
+                    if (dragPoint == null) return;
+                    updateLayout();
+                    if (viewport.panBy(e.getX() - dragPoint.x, e.getY() - dragPoint.y)) {
+                        repaint();
+                    }
+                    dragPoint = e.getPoint();
+                }
+            };
+            addMouseWheelListener(viewportListener);
+            addMouseListener(viewportListener);
+            addMouseMotionListener(viewportListener);
         }
 
         public void applyTheme() {
@@ -346,12 +502,107 @@ class GameView extends JPanel implements GameEventListener {
             repaint();
         }
 
-        public void updateBoard(int[][] board, boolean[][] shots) {
-            this.board = board;
-            this.shots = shots;
+        // Полная загрузка поля из массивов модели - при первом показе; дальше поле меняется через setCell
+        public void updateBoard(int boardSize, int[][] board, boolean[][] shots) {
+            clearBoard(boardSize);
+            if (board == null || shots == null) return;
+            for (int x = 0; x < boardSize; x++) {
+                for (int y = 0; y < boardSize; y++) {
+                    boolean ship = board[x][y] > 0;
+                    apply(y * boardSize + x, shots[x][y]
+                            ? (ship ? CompactEvent.CELL_HIT : CompactEvent.CELL_MISS)
+                            : (ship ? CompactEvent.CELL_SHIP : CompactEvent.CELL_EMPTY));
+                }
+            }
+        }
+
+        public void clearBoard(int boardSize) {
+            if (boardSize != this.boardSize) {
+                highlightX = -1;
+                highlightY = -1;
+            }
+            this.boardSize = boardSize;
+            // Разреженное поле, как и в модели, хранит только непустые клетки
+            if (boardSize > GameConfig.DENSE_LIMIT) {
+                cells = null;
+            } else if (cells != null && cells.length == boardSize * boardSize) {
+                Arrays.fill(cells, (byte) CompactEvent.CELL_EMPTY);
+            } else {
+                cells = new byte[boardSize * boardSize];
+            }
+            sparseCells.clear();
+            tiles.clear();
+            loaded = true;
+            allDirty = true;
+            dirtyCount = 0;
             repaint();
         }
 
+        // Изменение одной клетки перерисовывает только ее; невидимые изменения (корабль противника) - ничего
+        public void setCell(int x, int y, int state) {
+            if (!loaded || x >= boardSize || y >= boardSize) return;
+            int index = y * boardSize + x;
+            if (!apply(index, state)) return;
+            updateLayout();
+            if (viewport.isCellMode()) {
+                markDirty(index);
+            } else {
+                // Мелкие клетки и плитки рисуются с нахлестом на соседей и перерисовываются слоем целиком
+                allDirty = true;
+            }
+            if (viewport.isVisible(x, y)) {
+                repaintCells(x, y, 1, 1);
+            }
+        }
+
+        // Меняет состояние клетки и счетчики плитки; true, если изменился вид клетки на этом поле
+        private boolean apply(int index, int state) {
+            byte previous = cellState(stored(index));
+            if (cells != null) {
+                cells[index] = (byte) state;
+            } else if (state == CompactEvent.CELL_EMPTY) {
+                sparseCells.remove(index);
+            } else {
+                sparseCells.put(index, (byte) state);
+            }
+            byte current = cellState(state);
+            if (current == previous) return false;
+
+            int tile = (index / boardSize >> TILE_SHIFT) * ((boardSize >> TILE_SHIFT) + 1) + (index % boardSize >> TILE_SHIFT);
+            if (previous != BoardPainter.EMPTY) {
+                int[] counts = tiles.get(tile);
+                counts[previous]--;
+                if (--counts[0] == 0) {
+                    tiles.remove(tile);
+                }
+            }
+            if (current != BoardPainter.EMPTY) {
+                int[] counts = tiles.computeIfAbsent(tile, key -> new int[BoardPainter.STATES]);
+                counts[current]++;
+                counts[0]++;
+            }
+            return true;
+        }
+
+        private int stored(int index) {
+            if (cells != null) return cells[index];
+            Byte state = sparseCells.get(index);
+            return state != null ? state : CompactEvent.CELL_EMPTY;
+        }
+
+        private void markDirty(int index) {
+            if (allDirty) return;
+            if (dirtyCount == dirtyCells.length) {
+                // Изменилось больше клеток, чем стоит перечислять по одной
+                if (dirtyCount >= MAX_DIRTY_CELLS) {
+                    allDirty = true;
+                    return;
+                }
+                dirtyCells = Arrays.copyOf(dirtyCells, dirtyCount * 2);
+            }
+            dirtyCells[dirtyCount++] = index;
+        }
+
         public void setMouseListener(MouseAdapter listener) {
             if (mouseListener != null) {
                 removeMouseListener(mouseListener);
@@ -362,9 +613,47 @@ class GameView extends JPanel implements GameEventListener {
             addMouseMotionListener(listener);
         }
 
-        public void setHighlightedCell(Point cell) {
-            highlightedCell = cell;
-            repaint();
+        // Клетка под точкой панели с учетом масштаба и сдвига: индекс y * boardSize + x или -1, если точка вне поля
+        public int cellAt(int px, int py) {
+            updateLayout();
+            return viewport.cellAt(px, py);
+        }
+
+        // Движение курсора внутри клетки ничего не перерисовывает, а при переходе в другую клетку
+        // перерисовываются только прежняя и новая подсветка
+        public void setHighlightedCell(int x, int y) {
+            if (x == highlightX && y == highlightY) return;
+            repaintHighlight(highlightX, highlightY);
+            highlightX = x;
+            highlightY = y;
+            repaintHighlight(x, y);
+        }
+
+        // Область подсветки: клетка на поле компьютера, место текущего корабля при расстановке
+        private void repaintHighlight(int x, int y) {
+            if (x < 0 || y < 0 || x >= boardSize || y >= boardSize) return;
+            int width = 1;
+            int height = 1;
+            if (!interactive) {
+                GameModel model = BattleShipGame.getGameModel();
+                if (!showPlacementPreview || model == null || !model.isPlacementMode()) return;
+                if (model.isCurrentShipHorizontal()) {
+                    width = Math.min(model.getCurrentShipSize(), boardSize - x);
+                } else {
+                    height = Math.min(model.getCurrentShipSize(), boardSize - y);
+                }
+            }
+            updateLayout();
+            repaintCells(x, y, width, height);
+        }
+
+        // Прямоугольник клеток; мелкие клетки и плитки задевают соседние пиксели
+        private void repaintCells(int x, int y, int width, int height) {
+            int left = viewport.left(x);
+            int top = viewport.top(y);
+            int pad = viewport.isCellMode() ? 0 : TILE_PIXELS;
+            repaint(left - pad, top - pad, viewport.left(x + width) - left + 2 * pad,
+                    viewport.top(y + height) - top + 2 * pad);
         }
 
         public void setShowPlacementPreview(boolean show) {
@@ -374,110 +663,246 @@ class GameView extends JPanel implements GameEventListener {
 
         @Override
         protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
+            long start = Metrics.start();
+            // Фон панели целиком покрывает закэшированный слой, поэтому super.paintComponent не нужен
             Graphics2D g2d = (Graphics2D) g;
 
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                     RenderingHints.VALUE_ANTIALIAS_ON);
 
             drawBoard(g2d);
-        }
-
-        private void drawBoard(Graphics2D g2d) {
-            ColorTheme theme = getCurrentTheme();
-            int cellSize = Math.min(getWidth(), getHeight()) / (GameModel.BOARD_SIZE + 2);
-            int offsetX = (getWidth() - cellSize * GameModel.BOARD_SIZE) / 2;
-            int offsetY = (getHeight() - cellSize * GameModel.BOARD_SIZE) / 2;
-
-            // Рисование сетки
-            g2d.setColor(theme.gridColor);
-            g2d.setStroke(new BasicStroke(1.5f));
-            for (int i = 0; i <= GameModel.BOARD_SIZE; i++) {
-                g2d.drawLine(offsetX + i * cellSize, offsetY,
-                        offsetX + i * cellSize, offsetY + GameModel.BOARD_SIZE * cellSize);
-                g2d.drawLine(offsetX, offsetY + i * cellSize,
-                        offsetX + GameModel.BOARD_SIZE * cellSize, offsetY + i * cellSize);
+            Metrics.boardPaint(start, boardSize, getWidth(), getHeight());
+        }
+
+        // Фон строится заново при смене размера панели, поля, темы, масштаба экрана или окна просмотра,
+        // изображения клеток - только при смене их размера или темы
+        private void validateLayers(ColorTheme theme, double scale) {
+            updateLayout();
+            int width = viewport.getWidth();
+            int height = viewport.getHeight();
+            boolean resized = background == null || width != layerWidth || height != layerHeight || scale != layerScale;
+            boolean restyled = resized || theme != layerTheme || viewport.getCellSize() != layerCellSize
+                    || viewport.isCellMode() != layerCellMode;
+            if (!restyled && viewport.getVersion() == layerVersion) return;
+            layerWidth = width;
+            layerHeight = height;
+            layerVersion = viewport.getVersion();
+            layerTheme = theme;
+            layerScale = scale;
+            layerCellSize = viewport.getCellSize();
+            layerCellMode = viewport.isCellMode();
+            BoardPainter painter = new BoardPainter(theme, viewport);
+
+            if (resized) {
+                background = createLayer(width, height, Transparency.OPAQUE);
+                cellLayer = createLayer(width, height, Transparency.TRANSLUCENT);
             }
-
-            // Рисование координат
-            g2d.setFont(new Font("Arial", Font.BOLD, 12));
-            g2d.setColor(theme.gridColor);
-            for (int i = 0; i < GameModel.BOARD_SIZE; i++) {
-                g2d.drawString(String.valueOf((char)('А' + i)),
-                        offsetX + i * cellSize + cellSize/2 - 3, offsetY - 5);
-                g2d.drawString(String.valueOf(i + 1),
-                        offsetX - 15, offsetY + i * cellSize + cellSize/2 + 3);
+            Graphics2D g2d = layerGraphics(background);
+            painter.paintBackground(g2d);
+            g2d.dispose();
+
+            // Изображения клеток по состояниям; пустая клетка - прозрачная
+            if (restyled) {
+                int cellSize = viewport.getCellSize();
+                cellImages = new BufferedImage[BoardPainter.STATES];
+                for (byte state = BoardPainter.SHIP; state < BoardPainter.STATES; state++) {
+                    cellImages[state] = createLayer(cellSize, cellSize, Transparency.TRANSLUCENT);
+                    Graphics2D cell = layerGraphics(cellImages[state]);
+                    painter.paintCell(cell, state);
+                    cell.dispose();
+                }
             }
+            allDirty = true;
+        }
 
-            // Рисование содержимого клеток
-            if (board != null && shots != null) {
-                for (int x = 0; x < GameModel.BOARD_SIZE; x++) {
-                    for (int y = 0; y < GameModel.BOARD_SIZE; y++) {
-                        int cellX = offsetX + x * cellSize + 1;
-                        int cellY = offsetY + y * cellSize + 1;
-                        int drawSize = cellSize - 2;
-
-                        // Подсветка клетки при наведении
-                        if (highlightedCell != null && highlightedCell.x == x &&
-                                highlightedCell.y == y && interactive) {
-                            g2d.setColor(new Color(255, 255, 0, 100));
-                            g2d.fillRect(cellX, cellY, drawSize, drawSize);
-                        }
+        // Рамка мигания вокруг поля (перо 3 пикселя вокруг отступа 3)
+        void repaintFrame() {
+            updateLayout();
+            int left = viewport.left(0);
+            int top = viewport.top(0);
+            repaint(left - 5, top - 5, viewport.left(boardSize) - left + 10, viewport.top(boardSize) - top + 10);
+        }
 
-                        // Корабли игрока (только на своем поле)
-                        if (board[x][y] > 0 && !interactive) {
-                            g2d.setColor(theme.primaryButtonColor);
-                            g2d.fillRect(cellX + 2, cellY + 2, drawSize - 4, drawSize - 4);
+        // Квадрат size пикселей (но не меньше клетки) вокруг центра клетки
+        void repaintAroundCell(int x, int y, int size) {
+            updateLayout();
+            int cellSize = viewport.getCellSize();
+            int half = Math.max(size, cellSize) / 2 + 1;
+            int centerX = viewport.left(x) + cellSize / 2;
+            int centerY = viewport.top(y) + cellSize / 2;
+            repaint(centerX - half, centerY - half, 2 * half, 2 * half);
+        }
 
-                            g2d.setColor(theme.gridColor);
-                            g2d.drawRect(cellX + 2, cellY + 2, drawSize - 4, drawSize - 4);
-                        }
+        private void updateLayout() {
+            viewport.setBounds(getWidth(), getHeight(), boardSize);
+        }
 
-                        // Выстрелы
-                        if (shots[x][y]) {
-                            if (board[x][y] > 0) {
-                                g2d.setColor(Color.RED);
-                                g2d.fillOval(cellX + 5, cellY + 5, drawSize - 10, drawSize - 10);
-                                g2d.setColor(Color.WHITE);
-                                g2d.setFont(new Font("Arial", Font.BOLD, 14));
-                                g2d.drawString("✕", cellX + cellSize/2 - 5, cellY + cellSize/2 + 5);
-                            } else {
-                                g2d.setColor(Color.BLUE);
-                                g2d.drawOval(cellX + 5, cellY + 5, drawSize - 10, drawSize - 10);
-                                g2d.setFont(new Font("Arial", Font.BOLD, 12));
-                                g2d.drawString("•", cellX + cellSize/2 - 3, cellY + cellSize/2 + 3);
-                            }
+        private BufferedImage createLayer(int width, int height, int transparency) {
+            int pixelWidth = (int) Math.ceil(width * layerScale);
+            int pixelHeight = (int) Math.ceil(height * layerScale);
+            GraphicsConfiguration configuration = getGraphicsConfiguration();
+            if (configuration != null) {
+                return configuration.createCompatibleImage(pixelWidth, pixelHeight, transparency);
+            }
+            return new BufferedImage(pixelWidth, pixelHeight,
+                    transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        }
+
+        // Слои хранятся в пикселях экрана, а рисуются в логических координатах панели
+        private Graphics2D layerGraphics(BufferedImage image) {
+            Graphics2D g2d = image.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.scale(layerScale, layerScale);
+            return g2d;
+        }
+
+        private byte cellState(int state) {
+            return BoardPainter.cellState(state == CompactEvent.CELL_SHIP || state == CompactEvent.CELL_HIT,
+                    state == CompactEvent.CELL_MISS || state == CompactEvent.CELL_HIT, !interactive);
+        }
+
+        // В слое клеток перерисовываются только клетки, отмеченные setCell с прошлой отрисовки;
+        // весь слой - после смены поля или окна просмотра, и тогда только видимые клетки
+        private void updateCellLayer() {
+            if (!loaded || (!allDirty && dirtyCount == 0)) return;
+            Graphics2D g2d = layerGraphics(cellLayer);
+            // Клетки уже сглажены в своих изображениях; сглаживание очистки задело бы соседей
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            if (allDirty) {
+                g2d.setComposite(AlphaComposite.Clear);
+                g2d.fillRect(0, 0, layerWidth, layerHeight);
+                g2d.setComposite(AlphaComposite.SrcOver);
+                if (viewport.isTileMode()) {
+                    drawTiles(g2d);
+                } else if (cells != null) {
+                    for (int y = viewport.firstVisibleY(); y <= viewport.lastVisibleY(); y++) {
+                        for (int x = viewport.firstVisibleX(); x <= viewport.lastVisibleX(); x++) {
+                            drawCell(g2d, x, y, cellState(cells[y * boardSize + x]));
+                        }
+                    }
+                } else {
+                    for (Map.Entry<Integer, Byte> entry : sparseCells.entrySet()) {
+                        int x = entry.getKey() % boardSize;
+                        int y = entry.getKey() / boardSize;
+                        if (viewport.isVisible(x, y)) {
+                            drawCell(g2d, x, y, cellState(entry.getValue()));
                         }
                     }
                 }
+            } else {
+                int cellSize = viewport.getCellSize();
+                for (int i = 0; i < dirtyCount; i++) {
+                    int x = dirtyCells[i] % boardSize;
+                    int y = dirtyCells[i] / boardSize;
+                    if (!viewport.isVisible(x, y)) continue;
+                    g2d.setComposite(AlphaComposite.Clear);
+                    g2d.fillRect(viewport.left(x), viewport.top(y), cellSize, cellSize);
+                    g2d.setComposite(AlphaComposite.SrcOver);
+                    drawCell(g2d, x, y, cellState(stored(dirtyCells[i])));
+                }
+            }
+            g2d.dispose();
+            allDirty = false;
+            dirtyCount = 0;
+        }
+
+        private void drawCell(Graphics2D g2d, int x, int y, byte state) {
+            if (state == BoardPainter.EMPTY) return;
+            int cellSize = viewport.getCellSize();
+            g2d.drawImage(cellImages[state], viewport.left(x), viewport.top(y), cellSize, cellSize, null);
+        }
+
+        // Плитка - цвет самого важного в ней (попадание, корабль, промах), насыщенность - доля занятых клеток.
+        // Плиток могут быть десятки тысяч, поэтому они пишутся прямо в пиксели, проходами по важности:
+        // где плитки сливаются в один пиксель, остается более важная
+        private void drawTiles(Graphics2D g2d) {
+            int width = layerWidth;
+            int height = layerHeight;
+            if (tileImage == null || tileImage.getWidth() != width || tileImage.getHeight() != height) {
+                tileImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            }
+            int[] pixels = ((DataBufferInt) tileImage.getRaster().getDataBuffer()).getData();
+            Arrays.fill(pixels, 0);
+            int tilesPerRow = (boardSize >> TILE_SHIFT) + 1;
+            int tileSize = 1 << TILE_SHIFT;
+            int[] colors = {Color.BLUE.getRGB(), layerTheme.primaryButtonColor.getRGB(), Color.RED.getRGB()};
+            for (int pass = 0; pass < colors.length; pass++) {
+                for (Map.Entry<Integer, int[]> entry : tiles.entrySet()) {
+                    int[] counts = entry.getValue();
+                    int priority = counts[BoardPainter.HIT] + counts[BoardPainter.SHIP_HIT] > 0 ? 2
+                            : counts[BoardPainter.SHIP] > 0 ? 1 : 0;
+                    if (priority != pass) continue;
+                    int firstX = entry.getKey() % tilesPerRow << TILE_SHIFT;
+                    int firstY = entry.getKey() / tilesPerRow << TILE_SHIFT;
+                    int lastX = Math.min(boardSize, firstX + tileSize);
+                    int lastY = Math.min(boardSize, firstY + tileSize);
+
+                    int left = viewport.left(firstX);
+                    int top = viewport.top(firstY);
+                    int right = Math.min(width, Math.max(left + TILE_PIXELS, viewport.left(lastX)));
+                    int bottom = Math.min(height, Math.max(top + TILE_PIXELS, viewport.top(lastY)));
+                    left = Math.max(0, left);
+                    top = Math.max(0, top);
+                    if (left >= right || top >= bottom) continue;
+
+                    float fill = (float) counts[0] / ((lastX - firstX) * (lastY - firstY));
+                    int alpha = Math.round(255 * (0.4f + 0.6f * fill));
+                    int argb = alpha << 24 | colors[pass] & 0xFFFFFF;
+                    for (int y = top; y < bottom; y++) {
+                        Arrays.fill(pixels, y * width + left, y * width + right, argb);
+                    }
+                }
+            }
+            g2d.drawImage(tileImage, 0, 0, null);
+        }
+
+        private void drawBoard(Graphics2D g2d) {
+            ColorTheme theme = getCurrentTheme();
+            validateLayers(theme, g2d.getTransform().getScaleX());
+            updateCellLayer();
+            int cellSize = viewport.getCellSize();
+
+            g2d.drawImage(background, 0, 0, layerWidth, layerHeight, null);
+
+            // Подсветка клетки при наведении - под содержимым клетки
+            if (highlightX >= 0 && interactive && loaded && viewport.isCellMode()
+                    && highlightX < boardSize && highlightY < boardSize) {
+                g2d.setColor(HIGHLIGHT_COLOR);
+                g2d.fillRect(viewport.left(highlightX) + 1, viewport.top(highlightY) + 1,
+                        cellSize - 2, cellSize - 2);
+            }
+
+            g2d.drawImage(cellLayer, 0, 0, layerWidth, layerHeight, null);
+            if (viewport.isZoomed()) {
+                new BoardPainter(theme, viewport).paintLabels(g2d);
             }
 
             // Превью размещения корабля (только для поля игрока в режиме расстановки)
-            if (showPlacementPreview && highlightedCell != null && !interactive) {
+            if (showPlacementPreview && highlightX >= 0 && !interactive && viewport.isCellMode()) {
                 GameModel model = BattleShipGame.getGameModel();
                 if (model != null && model.isPlacementMode()) {
                     int shipSize = model.getCurrentShipSize();
                     boolean horizontal = model.isCurrentShipHorizontal();
 
                     // Проверяем можно ли разместить корабль
-                    boolean canPlace = model.canPlaceShip(model.getPlayerBoard(),
-                            highlightedCell.x, highlightedCell.y, shipSize, horizontal, false);
+                    boolean canPlace = model.canPlacePlayerShip(
+                            highlightX, highlightY, shipSize, horizontal);
 
-                    g2d.setColor(canPlace ? new Color(0, 255, 0, 100) : new Color(255, 0, 0, 100));
+                    g2d.setColor(canPlace ? PREVIEW_VALID_COLOR : PREVIEW_INVALID_COLOR);
 
                     for (int i = 0; i < shipSize; i++) {
                         int previewX, previewY;
                         if (horizontal) {
-                            previewX = highlightedCell.x + i;
-                            previewY = highlightedCell.y;
+                            previewX = highlightX + i;
+                            previewY = highlightY;
                         } else {
-                            previewX = highlightedCell.x;
-                            previewY = highlightedCell.y + i;
+                            previewX = highlightX;
+                            previewY = highlightY + i;
                         }
 
-                        if (previewX < GameModel.BOARD_SIZE && previewY < GameModel.BOARD_SIZE) {
-                            int cellX = offsetX + previewX * cellSize + 1;
-                            int cellY = offsetY + previewY * cellSize + 1;
+                        if (previewX < boardSize && previewY < boardSize) {
+                            int cellX = viewport.left(previewX) + 1;
+                            int cellY = viewport.top(previewY) + 1;
                             g2d.fillRect(cellX, cellY, cellSize - 2, cellSize - 2);
                         }
                     }
@@ -487,24 +912,58 @@ class GameView extends JPanel implements GameEventListener {
             // Анимация - мигающая рамка для активного поля
             if (cellHighlighted && interactive) {
                 g2d.setColor(Color.RED);
-                g2d.setStroke(new BasicStroke(3));
-                g2d.drawRect(offsetX - 3, offsetY - 3,
-                        GameModel.BOARD_SIZE * cellSize + 6,
-                        GameModel.BOARD_SIZE * cellSize + 6);
+                g2d.setStroke(FRAME_STROKE);
+                g2d.drawRect(viewport.left(0) - 3, viewport.top(0) - 3,
+                        viewport.left(boardSize) - viewport.left(0) + 6,
+                        viewport.top(boardSize) - viewport.top(0) + 6);
             }
 
-            // Рисование взрывов
-            for (Point explosion : explosionPoints) {
-                int cellX = offsetX + explosion.x * cellSize + cellSize/2;
-                int cellY = offsetY + explosion.y * cellSize + cellSize/2;
-
-                g2d.setColor(Color.ORANGE);
-                for (int i = 0; i < 5; i++) {
-                    int size = 10 + i * 2;
-                    g2d.setColor(new Color(255, 165, 0, 200 - i * 40));
+            // Рисование взрывов этого поля
+            if (explosions.isEmpty()) return;
+            Composite composite = g2d.getComposite();
+            for (Explosion explosion : explosions) {
+                if (explosion.panel != this) continue;
+                int cellX = viewport.left(explosion.x) + cellSize/2;
+                int cellY = viewport.top(explosion.y) + cellSize/2;
+                float scale = 1 + EXPLOSION_GROWTH * explosion.progress;
+
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1 - explosion.progress));
+                for (int i = 0; i < EXPLOSION_COLORS.length; i++) {
+                    int size = Math.round((10 + i * 2) * scale);
+                    g2d.setColor(EXPLOSION_COLORS[i]);
                     g2d.fillOval(cellX - size/2, cellY - size/2, size, size);
                 }
             }
+            g2d.setComposite(composite);
+        }
+    }
+
+    // Взрыв на одном из полей; состояние - доля прожитого времени
+    private final class Explosion implements FrameClock.Animation {
+        private static final int MAX_SIZE = Math.round(18 * (1 + EXPLOSION_GROWTH)) + 2;
+
+        final GameBoardPanel panel;
+        final int x;
+        final int y;
+        final long start;
+        float progress;
+
+        Explosion(GameBoardPanel panel, int x, int y, long start) {
+            this.panel = panel;
+            this.x = x;
+            this.y = y;
+            this.start = start;
+        }
+
+        @Override
+        public long tick(long now) {
+            progress = Math.min(1, (float) (now - start) / EXPLOSION_NANOS);
+            panel.repaintAroundCell(x, y, MAX_SIZE);
+            if (progress >= 1) {
+                explosions.remove(this);
+                return FrameClock.FINISHED;
+            }
+            return now;
         }
     }
 }
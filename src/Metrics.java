@@ -0,0 +1,233 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Замеры горячих путей: гистограмма задержек на каждую точку, события JFR и MBean battleship:type=Metrics.
+// Включаются флагом -Dbattleship.metrics=true. ENABLED - константа, поэтому без флага JIT выбрасывает
+// замеры целиком: start() возвращает 0, а методы записи - пустые.
+//   long start = Metrics.start();
+//   ...
+//   Metrics.computerShot(start, difficulty, cell, hit);
+final class Metrics {
+    static final boolean ENABLED = Boolean.getBoolean("battleship.metrics");
+
+    // Точки замера
+    enum Probe {
+        COMPUTER_SHOOT("computerShoot"),
+        PLACE_PLAYER_SHIP("placePlayerShip"),
+        FIRE_EVENT("fireEvent"),
+        PAINT_BOARD("paintBoard");
+
+        final String label;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Probe(String label) {
+            this.label = label;
+        }
+    }
+
+    // Сводка по одной точке, задержки в наносекундах
+    record ProbeStats(String name, long count, long p50, long p90, long p99, long p999, long max) {
+    }
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(new MetricsBean(), new ObjectName("battleship:type=Metrics"));
+            } catch (JMException e) {
+                // Второй загрузчик классов или запрет JMX: гистограммы и JFR работают и без MBean
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    static void computerShot(long start, String difficulty, int cell, boolean hit) {
+        if (!ENABLED) return;
+        long nanos = record(Probe.COMPUTER_SHOOT, start);
+        ComputerShotEvent event = new ComputerShotEvent();
+        if (event.shouldCommit()) {
+            event.latency = nanos;
+            event.difficulty = difficulty;
+            event.cell = cell;
+            event.hit = hit;
+            event.commit();
+        }
+    }
+
+    static void placement(long start, int x, int y, int length, boolean horizontal, boolean placed) {
+        if (!ENABLED) return;
+        long nanos = record(Probe.PLACE_PLAYER_SHIP, start);
+        PlacementEvent event = new PlacementEvent();
+        if (event.shouldCommit()) {
+            event.latency = nanos;
+            event.x = x;
+            event.y = y;
+            event.length = length;
+            event.horizontal = horizontal;
+            event.placed = placed;
+            event.commit();
+        }
+    }
+
+    // kind - вид события из упакованного заголовка (CompactEvent.kind)
+    static void eventDispatch(long start, int kind, int listeners) {
+        if (!ENABLED) return;
+        long nanos = record(Probe.FIRE_EVENT, start);
+        DispatchEvent event = new DispatchEvent();
+        if (event.shouldCommit()) {
+            event.latency = nanos;
+            event.eventType = CompactEvent.typeName(kind);
+            event.listeners = listeners;
+            event.commit();
+        }
+    }
+
+    static void boardPaint(long start, int boardSize, int width, int height) {
+        if (!ENABLED) return;
+        long nanos = record(Probe.PAINT_BOARD, start);
+        PaintEvent event = new PaintEvent();
+        if (event.shouldCommit()) {
+            event.latency = nanos;
+            event.boardSize = boardSize;
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+    static List<ProbeStats> snapshot() {
+        List<ProbeStats> stats = new ArrayList<>();
+        for (Probe probe : Probe.values()) {
+            LatencyHistogram h = probe.histogram;
+            stats.add(new ProbeStats(probe.label, h.count(), h.percentile(0.5), h.percentile(0.9),
+                    h.percentile(0.99), h.percentile(0.999), h.max()));
+        }
+        return stats;
+    }
+
+    static void reset() {
+        for (Probe probe : Probe.values()) {
+            probe.histogram.reset();
+        }
+    }
+
+    // Таблица для вывода в консоль, задержки в микросекундах
+    static String report() {
+        StringBuilder report = new StringBuilder(String.format("%-16s %12s %10s %10s %10s %10s %10s%n",
+                "Точка", "Вызовов", "p50", "p90", "p99", "p99.9", "макс"));
+        for (ProbeStats stats : snapshot()) {
+            report.append(String.format("%-16s %12d %10.1f %10.1f %10.1f %10.1f %10.1f%n", stats.name(), stats.count(),
+                    stats.p50() / 1e3, stats.p90() / 1e3, stats.p99() / 1e3, stats.p999() / 1e3, stats.max() / 1e3));
+        }
+        return report.toString();
+    }
+
+    private static long record(Probe probe, long start) {
+        long nanos = System.nanoTime() - start;
+        probe.histogram.record(nanos);
+        return nanos;
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        @Override
+        public String[] getProbes() {
+            return snapshot().stream().map(ProbeStats::name).toArray(String[]::new);
+        }
+
+        @Override
+        public long[] getCounts() {
+            return snapshot().stream().mapToLong(ProbeStats::count).toArray();
+        }
+
+        @Override
+        public long[] getP50Nanos() {
+            return snapshot().stream().mapToLong(ProbeStats::p50).toArray();
+        }
+
+        @Override
+        public long[] getP99Nanos() {
+            return snapshot().stream().mapToLong(ProbeStats::p99).toArray();
+        }
+
+        @Override
+        public long[] getMaxNanos() {
+            return snapshot().stream().mapToLong(ProbeStats::max).toArray();
+        }
+
+        @Override
+        public String getReport() {
+            return Metrics.report();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
+
+// События JFR. Время события - момент окончания, длительность - в поле latency. Стек не пишется:
+// место вызова у каждого события одно. Частые события (выстрел, рассылка) по умолчанию выключены,
+// их включают в настройках записи: jfr configure +battleship.ComputerShot#enabled=true
+@Name("battleship.ComputerShot")
+@Label("Выстрел компьютера")
+@Category("Морской бой")
+@StackTrace(false)
+@Enabled(false)
+class ComputerShotEvent extends Event {
+    @Label("Задержка") @Timespan long latency;
+    @Label("Сложность") String difficulty;
+    @Label("Клетка") int cell;
+    @Label("Попадание") boolean hit;
+}
+
+@Name("battleship.Placement")
+@Label("Расстановка корабля игрока")
+@Category("Морской бой")
+@StackTrace(false)
+class PlacementEvent extends Event {
+    @Label("Задержка") @Timespan long latency;
+    @Label("X") int x;
+    @Label("Y") int y;
+    @Label("Длина") int length;
+    @Label("Горизонтально") boolean horizontal;
+    @Label("Поставлен") boolean placed;
+}
+
+@Name("battleship.EventDispatch")
+@Label("Рассылка события")
+@Category("Морской бой")
+@StackTrace(false)
+@Enabled(false)
+class DispatchEvent extends Event {
+    @Label("Задержка") @Timespan long latency;
+    @Label("Тип события") String eventType;
+    @Label("Слушателей") int listeners;
+}
+
+@Name("battleship.BoardPaint")
+@Label("Отрисовка поля")
+@Category("Морской бой")
+@StackTrace(false)
+class PaintEvent extends Event {
+    @Label("Задержка") @Timespan long latency;
+    @Label("Размер поля") int boardSize;
+    @Label("Ширина") int width;
+    @Label("Высота") int height;
+}
@@ -0,0 +1,17 @@
+// Замеры Metrics через JMX (jconsole, VisualVM): массивы идут в порядке getProbes, задержки в наносекундах.
+// Интерфейс MXBean обязан быть public
+public interface MetricsMXBean {
+    String[] getProbes();
+
+    long[] getCounts();
+
+    long[] getP50Nanos();
+
+    long[] getP99Nanos();
+
+    long[] getMaxNanos();
+
+    String getReport();
+
+    void reset();
+}
@@ -0,0 +1,302 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Выбор выстрела выборкой целых флотов: случайно расставляются флоты, согласные со всем, что видно
+// по своим выстрелам (промахи, недобитые попадания, потопленные корабли), и выбирается клетка, которую
+// они занимают чаще всего. Флот - ровно shipSizes без потопленных, корабли не касаются друг друга
+// (canPlaceShip). Сначала ставятся корабли через недобитые попадания, потом остальные - от больших к меньшим.
+// Выборка делится на CHUNKS частей, у каждой свой поток GameRandom из зерна хода; части идут параллельно
+// в текущем пуле fork-join, и при том же зерне итог не зависит от числа потоков. Бюджет времени обрывает
+// выборку раньше - ход быстрее, но грубее и воспроизводим, только если бюджета хватило.
+class MonteCarloTargeting {
+    private static final int CHUNKS = 16;
+    // Попыток на одну нужную расстановку: к концу партии согласных флотов мало, и большинство попыток неудачны
+    private static final int ATTEMPTS_PER_SAMPLE = 16;
+    private static final int PLACEMENT_TRIES = 64; // случайных позиций для корабля вне попаданий
+    private static final int BUDGET_CHECK_INTERVAL = 8;
+
+    private final int size;
+    private final int samples;
+    private long budgetNanos; // 0 - без ограничения
+    private final int[] shipSizes;   // по убыванию
+    private final BitBoard sunk;     // потопленные корабли; их ореол не даст поставить рядом другие
+    private final BitBoard blocked;  // клетки, где корабля точно нет: промахи и диагонали попаданий
+    private final BitBoard hitBits;  // попадания в еще не потопленные корабли
+    private final int[] remaining;   // длины непотопленных кораблей, по убыванию
+    private int remainingCount;
+    private int[] hits = new int[16]; // они же списком
+    private int hitCount;
+    private final long[] total;
+    private final Chunk[] chunks = new Chunk[CHUNKS];
+    private int lastSamples;
+
+    public MonteCarloTargeting(int size, int[] shipSizes, int samples, long budgetNanos) {
+        this.size = size;
+        this.samples = samples;
+        this.budgetNanos = budgetNanos;
+        this.shipSizes = shipSizes.clone();
+        Arrays.sort(this.shipSizes);
+        for (int i = 0, j = this.shipSizes.length - 1; i < j; i++, j--) {
+            int t = this.shipSizes[i];
+            this.shipSizes[i] = this.shipSizes[j];
+            this.shipSizes[j] = t;
+        }
+        sunk = new BitBoard(size);
+        blocked = new BitBoard(size);
+        hitBits = new BitBoard(size);
+        remaining = new int[shipSizes.length];
+        total = new long[size * size];
+    }
+
+    // Клетка, чаще всего занятая согласными флотами, или -1, если за отведенное время таких не нашлось
+    public int nextShot(CellSet shots, Fleet fleet, Random random) {
+        learn(shots, fleet);
+        lastSamples = 0;
+        if (remainingCount == 0) return -1;
+
+        long seed = random.nextLong();
+        long deadline = budgetNanos > 0 ? System.nanoTime() + budgetNanos : 0;
+        int quota = (samples + CHUNKS - 1) / CHUNKS;
+        for (int c = 0; c < CHUNKS; c++) {
+            if (chunks[c] == null) {
+                chunks[c] = new Chunk();
+            }
+        }
+        IntStream.range(0, CHUNKS).parallel()
+                .forEach(c -> chunks[c].sample(GameRandom.streamSeed(seed, c), quota, deadline));
+
+        // Части складываются по порядку, чтобы итог не зависел от того, какая закончила первой
+        Arrays.fill(total, 0);
+        for (Chunk chunk : chunks) {
+            lastSamples += chunk.valid;
+            for (int cell = 0; cell < total.length; cell++) {
+                total[cell] += chunk.counts[cell];
+            }
+        }
+        if (lastSamples == 0) return -1;
+
+        long best = 0;
+        int bestCell = -1;
+        int ties = 0;
+        for (int cell = 0; cell < total.length; cell++) {
+            if (shots.get(cell) || total[cell] == 0) continue;
+            if (total[cell] > best) {
+                best = total[cell];
+                bestCell = cell;
+                ties = 1;
+            } else if (total[cell] == best && random.nextInt(++ties) == 0) {
+                bestCell = cell;
+            }
+        }
+        return bestCell;
+    }
+
+    public void setTimeBudget(long nanos) {
+        budgetNanos = nanos;
+    }
+
+    // Сколько согласных флотов нашлось на последнем ходе
+    public int getLastSamples() { return lastSamples; }
+
+    // Примерный объем в куче, байт: итоговые счетчики и рабочие поля частей выборки (создаются при первом ходе)
+    public long estimateFootprint() {
+        long cells = (long) size * size;
+        long footprint = 3 * sunk.estimateFootprint() + 8 * cells;
+        for (Chunk chunk : chunks) {
+            if (chunk != null) {
+                footprint += chunk.board.estimateFootprint() + 4 * cells;
+            }
+        }
+        return footprint;
+    }
+
+    private void learn(CellSet shots, Fleet fleet) {
+        sunk.clear();
+        blocked.clear();
+        hitBits.clear();
+        hitCount = 0;
+        System.arraycopy(shipSizes, 0, remaining, 0, shipSizes.length);
+        remainingCount = shipSizes.length;
+
+        for (int id = 0; id < fleet.getShipCount(); id++) {
+            if (!fleet.isSunk(id)) continue;
+            int length = fleet.getShipLength(id);
+            sunk.placeShip(fleet.getShipX(id), fleet.getShipY(id), length, fleet.isShipHorizontal(id));
+            for (int i = 0; i < remainingCount; i++) {
+                if (remaining[i] == length) {
+                    System.arraycopy(remaining, i + 1, remaining, i, remainingCount - i - 1);
+                    remainingCount--;
+                    break;
+                }
+            }
+        }
+
+        for (int cell = 0; cell < size * size; cell++) {
+            if (!shots.get(cell) || sunk.get(cell)) continue;
+            if (fleet.shipAt(cell) < 0) {
+                blocked.set(cell);
+                continue;
+            }
+            if (hitCount == hits.length) {
+                hits = Arrays.copyOf(hits, hitCount * 2);
+            }
+            hits[hitCount++] = cell;
+            hitBits.set(cell);
+
+            // Корабли не касаются углами, значит диагональные соседи попадания пусты
+            int x = cell % size;
+            int y = cell / size;
+            for (int dy = -1; dy <= 1; dy += 2) {
+                for (int dx = -1; dx <= 1; dx += 2) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if (nx >= 0 && ny >= 0 && nx < size && ny < size) {
+                        blocked.set(ny * size + nx);
+                    }
+                }
+            }
+        }
+    }
+
+    // Одна часть выборки со своим генератором и счетчиками; переиспользуется от хода к ходу
+    private final class Chunk {
+        final GameRandom random = new GameRandom(0);
+        final BitBoard board = new BitBoard(size);
+        final int[] counts = new int[size * size];
+        final boolean[] used = new boolean[shipSizes.length];
+        final int[] placedCell = new int[shipSizes.length];
+        final int[] placedLength = new int[shipSizes.length];
+        final boolean[] placedHorizontal = new boolean[shipSizes.length];
+        int[] candidates = new int[64];
+        int placed;
+        int valid;
+
+        void sample(long seed, int quota, long deadline) {
+            random.setSeed(seed);
+            Arrays.fill(counts, 0);
+            valid = 0;
+            long attempts = (long) quota * ATTEMPTS_PER_SAMPLE;
+            for (long attempt = 0; valid < quota && attempt < attempts; attempt++) {
+                if (deadline != 0 && attempt % BUDGET_CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) break;
+                if (!sampleFleet()) continue;
+                valid++;
+                for (int s = 0; s < placed; s++) {
+                    int step = placedHorizontal[s] ? 1 : size;
+                    for (int i = 0, cell = placedCell[s]; i < placedLength[s]; i++, cell += step) {
+                        counts[cell]++;
+                    }
+                }
+            }
+        }
+
+        // Одна случайная расстановка непотопленных кораблей; false, если она зашла в тупик
+        boolean sampleFleet() {
+            board.copyFrom(sunk);
+            Arrays.fill(used, 0, remainingCount, false);
+            placed = 0;
+
+            // Каждое недобитое попадание накрывается кораблем, выбранным среди всех подходящих позиций
+            for (int h = 0; h < hitCount; h++) {
+                int hit = hits[h];
+                if (board.get(hit)) continue;
+                int count = collectCandidates(hit);
+                if (count == 0) return false;
+                int pick = candidates[random.nextInt(count)];
+                int ship = pick / (size * size * 2);
+                int anchor = pick % (size * size * 2);
+                place(ship, anchor >> 1, (anchor & 1) == 0);
+            }
+
+            for (int ship = 0; ship < remainingCount; ship++) {
+                if (used[ship]) continue;
+                int length = remaining[ship];
+                boolean done = false;
+                for (int t = 0; t < PLACEMENT_TRIES && !done; t++) {
+                    int cell = random.nextInt(size * size);
+                    boolean horizontal = random.nextBoolean();
+                    // Все попадания уже накрыты, так что canPlaceShip не даст на них встать
+                    if (fits(cell, length, horizontal)) {
+                        place(ship, cell, horizontal);
+                        done = true;
+                    }
+                }
+                if (!done) return false;
+            }
+            return true;
+        }
+
+        // Позиции неиспользованных кораблей через клетку hit: ship * клеток * 2 + анкер * 2 + вертикаль
+        private int collectCandidates(int hit) {
+            int count = 0;
+            int x = hit % size;
+            int y = hit / size;
+            for (int ship = 0; ship < remainingCount; ship++) {
+                if (used[ship]) continue;
+                int length = remaining[ship];
+                for (int v = 0; v < 2; v++) {
+                    boolean horizontal = v == 0;
+                    int offset = horizontal ? x : y;
+                    int step = horizontal ? 1 : size;
+                    for (int k = 0; k < length && k <= offset; k++) {
+                        int anchor = hit - k * step;
+                        if (!fits(anchor, length, horizontal)) continue;
+                        // Корабль, все клетки которого уже подбиты, был бы потоплен
+                        if (hitsIn(anchor, length, horizontal) == length) continue;
+                        // Попадание рядом с кораблем, но не в нем, потом уже нечем накрыть
+                        if (touchesHit(anchor, length, horizontal)) continue;
+                        if (count == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, count * 2);
+                        }
+                        candidates[count++] = ship * size * size * 2 + anchor * 2 + v;
+                    }
+                }
+            }
+            return count;
+        }
+
+        // Позиция на поле, не задевает пустых клеток и не касается уже стоящих кораблей
+        private boolean fits(int cell, int length, boolean horizontal) {
+            int x = cell % size;
+            int y = cell / size;
+            if (!board.canPlaceShip(x, y, length, horizontal)) return false;
+            int step = horizontal ? 1 : size;
+            for (int i = 0, c = cell; i < length; i++, c += step) {
+                if (blocked.get(c)) return false;
+            }
+            return true;
+        }
+
+        private int hitsIn(int cell, int length, boolean horizontal) {
+            int count = 0;
+            int step = horizontal ? 1 : size;
+            for (int i = 0, c = cell; i < length; i++, c += step) {
+                if (hitBits.get(c)) count++;
+            }
+            return count;
+        }
+
+        private boolean touchesHit(int cell, int length, boolean horizontal) {
+            int x = cell % size;
+            int y = cell / size;
+            int toX = horizontal ? x + length : x + 1;
+            int toY = horizontal ? y + 1 : y + length;
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(size - 1, toY); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(size - 1, toX); nx++) {
+                    boolean inShip = horizontal ? ny == y && nx >= x && nx < toX : nx == x && ny >= y && ny < toY;
+                    if (!inShip && hitBits.get(ny * size + nx)) return true;
+                }
+            }
+            return false;
+        }
+
+        private void place(int ship, int cell, boolean horizontal) {
+            used[ship] = true;
+            board.placeShip(cell % size, cell / size, remaining[ship], horizontal);
+            placedCell[placed] = cell;
+            placedLength[placed] = remaining[ship];
+            placedHorizontal[placed] = horizontal;
+            placed++;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Хранилище партий сервера. В памяти держатся только активные партии: партия, к которой не обращались
+// дольше idle, или самые давние, пока партии в памяти занимают больше maxResidentBytes, сохраняются снимком
+// (GameModel.writeSnapshot) в файл подкачки, и от них в куче остается только запись Session.
+// Объем партии оценивается GameModel.estimateFootprint после каждого обращения: он растет с площадью
+// поля и зависит от сложности, так что партия 256x256 весит в сотни раз больше классической.
+// Последняя партия в памяти не выгружается, даже если одна превышает бюджет.
+// Следующая команда партии незаметно поднимает ее из файла.
+// Совсем заброшенные партии (дольше expire без обращений) удаляются.
+// За партией можно следовать через SpectatorHub (watch); зрители не продлевают ей жизнь,
+// а при выгрузке и подъеме партии трансляция переключается на новый экземпляр модели.
+//
+// Блокировки: у каждой партии своя, плюс общая для списка LRU. Порядок - сначала партия, потом список;
+// выгрузка, которая идет от списка, берет блокировку партии только через tryLock.
+// ReentrantLock, а не synchronized: сервер работает на виртуальных потоках.
+class SessionStore implements Closeable {
+    // Слоты файла подкачки - степени двойки, не меньше 2^MIN_SLOT_BITS байт
+    private static final int MIN_SLOT_BITS = 7;
+    private static final int SLOT_CLASSES = 32;
+
+    private final GameConfig config;
+    private final long maxResidentBytes;
+    private final long idleNanos;
+    private final long expireNanos;
+    private final FileChannel spill;
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Long, Session> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock residentLock = new ReentrantLock();
+    private long residentBytes; // под residentLock
+    private final List<Queue<Long>> freeSlots = new ArrayList<>();
+    private final AtomicLong spillEnd = new AtomicLong();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong spills = new AtomicLong();
+    private final AtomicLong restores = new AtomicLong();
+
+    public SessionStore(GameConfig config, long maxResidentBytes, long idleMillis, long expireMillis)
+            throws IOException {
+        this(config, maxResidentBytes, idleMillis, expireMillis, Files.createTempFile("battleship-sessions", ".bin"));
+    }
+
+    public SessionStore(GameConfig config, long maxResidentBytes, long idleMillis, long expireMillis, Path spillFile)
+            throws IOException {
+        if (maxResidentBytes < 1) {
+            throw new IllegalArgumentException("Память под партии должна быть положительной: " + maxResidentBytes);
+        }
+        this.config = config;
+        this.maxResidentBytes = maxResidentBytes;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.expireNanos = TimeUnit.MILLISECONDS.toNanos(expireMillis);
+        this.spill = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        for (int i = 0; i < SLOT_CLASSES; i++) {
+            freeSlots.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    // Новая партия; возвращает ее номер
+    public long create() {
+        Session session = new Session(nextId.getAndIncrement(), new GameModel(config));
+        sessions.put(session.id, session);
+        session.lock.lock();
+        try {
+            touch(session);
+        } finally {
+            session.lock.unlock();
+        }
+        evictOverflow();
+        return session.id;
+    }
+
+    public GameConfig getConfig() { return config; }
+
+    public boolean contains(long id) {
+        return sessions.containsKey(id);
+    }
+
+    // Выполняет действие над моделью партии, пока партия заблокирована; выгруженная партия сначала поднимается из файла
+    public <T> T withSession(long id, Function<GameModel, T> action) {
+        return withLockedSession(id, session -> action.apply(session.model));
+    }
+
+    // Трансляция партии для зрителей; создается при первом запросе
+    public SpectatorHub watch(long id) {
+        return withLockedSession(id, session -> {
+            if (session.hub == null) {
+                session.hub = new SpectatorHub(session.model);
+            }
+            return session.hub;
+        });
+    }
+
+    private <T> T withLockedSession(long id, Function<Session, T> action) {
+        Session session = sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("Нет партии " + id);
+        }
+        T result;
+        session.lock.lock();
+        try {
+            if (session.removed) {
+                throw new IllegalArgumentException("Нет партии " + id);
+            }
+            if (session.model == null) {
+                restore(session);
+            }
+            try {
+                result = action.apply(session);
+            } finally {
+                // Действие могло сменить поле или создать стратегию, поэтому объем оценивается после него
+                touch(session);
+            }
+        } finally {
+            session.lock.unlock();
+        }
+        evictOverflow();
+        return result;
+    }
+
+    public void remove(long id) {
+        Session session = sessions.remove(id);
+        if (session == null) return;
+        session.lock.lock();
+        try {
+            session.removed = true;
+            session.model = null;
+            if (session.hub != null) {
+                session.hub.close();
+            }
+            forget(session);
+            releaseSlot(session);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    // Выгружает партии, простаивающие дольше idle, и удаляет просроченные; вызывается периодически
+    public void evictIdle() {
+        long now = System.nanoTime();
+        List<Session> idle = new ArrayList<>();
+        residentLock.lock();
+        try {
+            // Список упорядочен по последнему обращению, поэтому просмотр останавливается на первой активной партии
+            for (Session session : resident.values()) {
+                if (now - session.lastAccess < idleNanos) break;
+                idle.add(session);
+            }
+        } finally {
+            residentLock.unlock();
+        }
+        for (Session session : idle) {
+            trySpill(session, true);
+        }
+
+        for (Session session : sessions.values()) {
+            if (now - session.lastAccess >= expireNanos) {
+                remove(session.id);
+            }
+        }
+    }
+
+    public int getSessionCount() { return sessions.size(); }
+    public long getSpillCount() { return spills.get(); }
+    public long getRestoreCount() { return restores.get(); }
+    public long getSpillFileSize() { return spillEnd.get(); }
+
+    public int getResidentCount() {
+        residentLock.lock();
+        try {
+            return resident.size();
+        } finally {
+            residentLock.unlock();
+        }
+    }
+
+    // Оценка объема партий в памяти, байт
+    public long getResidentBytes() {
+        residentLock.lock();
+        try {
+            return residentBytes;
+        } finally {
+            residentLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        spill.close();
+    }
+
+    // Пока бюджет превышен, партии выгружаются начиная с самой давней; занятые другими потоками пропускаются
+    private void evictOverflow() {
+        while (true) {
+            List<Session> candidates = new ArrayList<>();
+            residentLock.lock();
+            try {
+                long excess = residentBytes - maxResidentBytes;
+                if (excess <= 0) return;
+                // Самая свежая партия остается в памяти
+                Iterator<Session> eldest = resident.values().iterator();
+                for (int left = resident.size() - 1; excess > 0 && left > 0; left--) {
+                    Session session = eldest.next();
+                    candidates.add(session);
+                    excess -= session.footprint;
+                }
+            } finally {
+                residentLock.unlock();
+            }
+            boolean progress = false;
+            for (Session session : candidates) {
+                progress |= trySpill(session, false);
+            }
+            if (!progress) return;
+        }
+    }
+
+    // Выгружает партию, если она свободна; idleOnly - только если она все еще простаивает дольше idle
+    private boolean trySpill(Session session, boolean idleOnly) {
+        if (!session.lock.tryLock()) return false;
+        try {
+            if (session.model == null || session.removed) return false;
+            if (idleOnly && System.nanoTime() - session.lastAccess < idleNanos) return false;
+            spill(session);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private void spill(Session session) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(session.model.getMaxSnapshotSize());
+        session.model.writeSnapshot(buffer);
+        buffer.flip();
+        int length = buffer.remaining();
+
+        // Снимок той же партии обычно помещается в ее прежний слот
+        if (session.slotBits == 0 || length > 1 << session.slotBits) {
+            releaseSlot(session);
+            session.slotBits = slotBits(length);
+            session.slotOffset = allocateSlot(session.slotBits);
+        }
+        long position = session.slotOffset;
+        while (buffer.hasRemaining()) {
+            position += spill.write(buffer, position);
+        }
+        session.length = length;
+        session.model = null;
+        if (session.hub != null) {
+            session.hub.detach();
+        }
+        forget(session);
+        spills.incrementAndGet();
+    }
+
+    private void restore(Session session) {
+        ByteBuffer buffer = ByteBuffer.allocate(session.length);
+        try {
+            long position = session.slotOffset;
+            while (buffer.hasRemaining()) {
+                int read = spill.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Файл подкачки партий обрезан");
+                }
+                position += read;
+            }
+            buffer.flip();
+            session.model = GameModel.readSnapshot(buffer);
+            if (session.hub != null) {
+                session.hub.attach(session.model);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        restores.incrementAndGet();
+    }
+
+    private void touch(Session session) {
+        session.lastAccess = System.nanoTime();
+        long footprint = session.model.estimateFootprint();
+        residentLock.lock();
+        try {
+            resident.put(session.id, session);
+            residentBytes += footprint - session.footprint;
+            session.footprint = footprint;
+        } finally {
+            residentLock.unlock();
+        }
+    }
+
+    private void forget(Session session) {
+        residentLock.lock();
+        try {
+            if (resident.remove(session.id) != null) {
+                residentBytes -= session.footprint;
+            }
+            session.footprint = 0;
+        } finally {
+            residentLock.unlock();
+        }
+    }
+
+    private long allocateSlot(int bits) {
+        Long free = freeSlots.get(bits).poll();
+        return free != null ? free : spillEnd.getAndAdd(1L << bits);
+    }
+
+    private void releaseSlot(Session session) {
+        if (session.slotBits != 0) {
+            freeSlots.get(session.slotBits).add(session.slotOffset);
+            session.slotBits = 0;
+        }
+    }
+
+    private static int slotBits(int length) {
+        return Math.max(MIN_SLOT_BITS, 32 - Integer.numberOfLeadingZeros(length - 1));
+    }
+
+    // Запись партии; поля, кроме id и lock, меняются только под lock, footprint - еще и под residentLock
+    private static final class Session {
+        final long id;
+        final ReentrantLock lock = new ReentrantLock();
+        GameModel model;
+        SpectatorHub hub;
+        volatile long lastAccess;
+        long footprint; // оценка объема модели, пока партия в памяти; 0 - выгружена
+        long slotOffset;
+        int slotBits; // 0 - слота в файле нет
+        int length;
+        boolean removed;
+
+        Session(long id, GameModel model) {
+            this.id = id;
+            this.model = model;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+// ИИ стрелка: выбирает клетку для выстрела по полю противника.
+// shots - свои выстрелы, fleet - корабли противника; стратегия смотрит на корабли только через
+// свои выстрелы (где попала, что потоплено), как игрок у экрана. Случайность - только из random,
+// тогда партия воспроизводится по зерну. Экземпляр обслуживает одну партию за раз и не потокобезопасен.
+interface ShotStrategy {
+    int nextShot(CellSet shots, Fleet fleet, Random random);
+
+    // Ограничение времени на ход, 0 - без ограничения (по умолчанию). Стратегия, которая его соблюдает,
+    // с ограничением ходит по-разному на разных машинах, и партия уже не воспроизводится по зерну.
+    // Быстрые стратегии его не замечают
+    default void setTimeBudget(long nanos) {
+    }
+
+    // Результат только что сделанного выстрела
+    default void onShot(int cell, boolean hit, boolean sunk) {
+    }
+
+    // Новая партия
+    default void reset() {
+    }
+
+    // Примерный объем состояния стратегии в куче, байт; стратегии без таблиц по площади поля его не считают
+    default long estimateFootprint() {
+        return 0;
+    }
+
+    static int randomUnshotCell(CellSet shots, Random random) {
+        int cells = shots.getSize() * shots.getSize();
+        int cell;
+        do {
+            cell = random.nextInt(cells);
+        } while (shots.get(cell));
+        return cell;
+    }
+}
+
+// Реестр стратегий по именам. Встроенные - уровни сложности игры; свои стратегии можно
+// зарегистрировать до начала партий, и они станут доступны GameModel, серверу и турниру
+final class ShotStrategies {
+    private static final Map<String, Function<GameConfig, ShotStrategy>> FACTORIES = new LinkedHashMap<>();
+
+    static {
+        register("Легкий", config -> new RandomStrategy());
+        register("Средний", config -> new MixedStrategy());
+        register("Сложный", config -> new HuntStrategy());
+        register("Эксперт", DensityStrategy::new);
+        register("Мастер", MonteCarloStrategy::new);
+    }
+
+    private ShotStrategies() {
+    }
+
+    static synchronized void register(String name, Function<GameConfig, ShotStrategy> factory) {
+        FACTORIES.put(name, factory);
+    }
+
+    static synchronized boolean contains(String name) {
+        return FACTORIES.containsKey(name);
+    }
+
+    static synchronized String[] names() {
+        return FACTORIES.keySet().toArray(new String[0]);
+    }
+
+    static ShotStrategy create(String name, GameConfig config) {
+        Function<GameConfig, ShotStrategy> factory;
+        synchronized (ShotStrategies.class) {
+            factory = FACTORIES.get(name);
+        }
+        if (factory == null) {
+            throw new IllegalArgumentException("Неизвестная стратегия: " + name);
+        }
+        return factory.apply(config);
+    }
+}
+
+// "Легкий": случайная клетка
+final class RandomStrategy implements ShotStrategy {
+    @Override
+    public int nextShot(CellSet shots, Fleet fleet, Random random) {
+        return ShotStrategy.randomUnshotCell(shots, random);
+    }
+}
+
+// "Сложный": добивает раненые корабли, иначе стреляет наугад
+final class HuntStrategy implements ShotStrategy {
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
+
+    @Override
+    public int nextShot(CellSet shots, Fleet fleet, Random random) {
+        int target = findSmartShot(shots, fleet);
+        return target >= 0 ? target : ShotStrategy.randomUnshotCell(shots, random);
+    }
+
+    // Возвращает индекс клетки рядом с попаданием или -1, если добивать нечего.
+    // Попадания ищутся по клеткам кораблей противника, а не по всему полю
+    static int findSmartShot(CellSet shots, Fleet fleet) {
+        int size = shots.getSize();
+        for (int id = 0; id < fleet.getShipCount(); id++) {
+            if (fleet.getRemainingHits(id) == fleet.getShipLength(id)) continue;
+            for (int i = 0; i < fleet.getShipLength(id); i++) {
+                int cell = fleet.getShipCell(id, i);
+                if (!shots.get(cell)) continue;
+                int x = cell % size;
+                int y = cell / size;
+                for (int[] dir : DIRECTIONS) {
+                    int newX = x + dir[0];
+                    int newY = y + dir[1];
+                    if (newX >= 0 && newX < size && newY >= 0 && newY < size && !shots.get(newX, newY)) {
+                        return newY * size + newX;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
+
+// "Средний": в 70% ходов стреляет наугад, в остальных играет как "Сложный"
+final class MixedStrategy implements ShotStrategy {
+    private static final double RANDOM_SHOT_CHANCE = 0.7;
+
+    @Override
+    public int nextShot(CellSet shots, Fleet fleet, Random random) {
+        if (random.nextDouble() < RANDOM_SHOT_CHANCE) {
+            return ShotStrategy.randomUnshotCell(shots, random);
+        }
+        int target = HuntStrategy.findSmartShot(shots, fleet);
+        return target >= 0 ? target : ShotStrategy.randomUnshotCell(shots, random);
+    }
+}
+
+// "Эксперт": карта плотности DensityTargeting. Карта строится при первом ходе
+// и дальше обновляется после каждого выстрела. На разреженном поле карты нет, ИИ играет как "Сложный"
+final class DensityStrategy implements ShotStrategy {
+    private final DensityTargeting targeting;
+
+    DensityStrategy(GameConfig config) {
+        targeting = config.isSparse() ? null : new DensityTargeting(config.getBoardSize(), config.getShipSizes());
+    }
+
+    @Override
+    public int nextShot(CellSet shots, Fleet fleet, Random random) {
+        int target;
+        if (targeting == null) {
+            target = HuntStrategy.findSmartShot(shots, fleet);
+        } else {
+            if (!targeting.isActive()) {
+                targeting.activate(shots, fleet);
+            }
+            target = targeting.nextShot(random);
+        }
+        return target >= 0 ? target : ShotStrategy.randomUnshotCell(shots, random);
+    }
+
+    @Override
+    public void onShot(int cell, boolean hit, boolean sunk) {
+        if (targeting != null && targeting.isActive()) {
+            targeting.onShot(cell, hit, sunk);
+        }
+    }
+
+    @Override
+    public void reset() {
+        if (targeting != null) {
+            targeting.reset();
+        }
+    }
+
+    @Override
+    public long estimateFootprint() {
+        return targeting != null ? targeting.estimateFootprint() : 0;
+    }
+}
+
+// "Мастер": выборка целых флотов MonteCarloTargeting на всех ядрах, SAMPLES флотов за ход. По умолчанию
+// без ограничения времени, так что симулятор и турнир повторяются по зерну; окно игры ограничивает ход
+// через setTimeBudget. Если согласных флотов не нашлось или поле разреженное, ход делает "Эксперт"
+final class MonteCarloStrategy implements ShotStrategy {
+    static final int SAMPLES = 2048;
+
+    private final MonteCarloTargeting targeting;
+    private final DensityStrategy fallback;
+
+    MonteCarloStrategy(GameConfig config) {
+        this(config, SAMPLES, 0);
+    }
+
+    MonteCarloStrategy(GameConfig config, int samples, long budgetNanos) {
+        targeting = config.isSparse() ? null
+                : new MonteCarloTargeting(config.getBoardSize(), config.getShipSizes(), samples, budgetNanos);
+        fallback = new DensityStrategy(config);
+    }
+
+    @Override
+    public int nextShot(CellSet shots, Fleet fleet, Random random) {
+        int target = targeting == null ? -1 : targeting.nextShot(shots, fleet, random);
+        return target >= 0 ? target : fallback.nextShot(shots, fleet, random);
+    }
+
+    @Override
+    public void setTimeBudget(long nanos) {
+        if (targeting != null) {
+            targeting.setTimeBudget(nanos);
+        }
+    }
+
+    // Запасная стратегия следит за выстрелами всю партию, чтобы ее карта была готова в любой момент
+    @Override
+    public void onShot(int cell, boolean hit, boolean sunk) {
+        fallback.onShot(cell, hit, sunk);
+    }
+
+    @Override
+    public void reset() {
+        fallback.reset();
+    }
+
+    @Override
+    public long estimateFootprint() {
+        return (targeting != null ? targeting.estimateFootprint() : 0) + fallback.estimateFootprint();
+    }
+}
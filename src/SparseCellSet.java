@@ -0,0 +1,162 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+// Разреженное поле: клетки хранятся плитками 64x64 (64 long, по одному на строку плитки),
+// плитка создается при первой отмеченной в ней клетке.
+class SparseCellSet implements CellSet {
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+    // Плитка в куче: массив long и запись хеш-таблицы с ключом
+    private static final int TILE_FOOTPRINT = 16 + 8 * (1 << TILE_SHIFT) + 48;
+
+    private final int size;
+    private final int tilesPerRow;
+    private final Map<Integer, long[]> tiles = new HashMap<>();
+    private int cardinality;
+    // Последняя запрошенная плитка: ореол корабля почти всегда лежит в одной плитке,
+    // и повторные поиски в таблице (с упаковкой ключа) не нужны
+    private int cachedKey = -1;
+    private long[] cachedTile;
+
+    public SparseCellSet(int size) {
+        this.size = size;
+        this.tilesPerRow = (size + TILE_MASK) >>> TILE_SHIFT;
+    }
+
+    @Override
+    public int getSize() { return size; }
+
+    @Override
+    public boolean get(int cell) {
+        return get(cell % size, cell / size);
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        long[] tile = tile(tileIndex(x, y));
+        return tile != null && (tile[y & TILE_MASK] & (1L << (x & TILE_MASK))) != 0;
+    }
+
+    @Override
+    public void set(int cell) {
+        set(cell % size, cell / size);
+    }
+
+    @Override
+    public void set(int x, int y) {
+        int key = tileIndex(x, y);
+        long[] tile = tile(key);
+        if (tile == null) {
+            tile = new long[1 << TILE_SHIFT];
+            tiles.put(key, tile);
+            cachedTile = tile;
+        }
+        long bit = 1L << (x & TILE_MASK);
+        if ((tile[y & TILE_MASK] & bit) == 0) {
+            tile[y & TILE_MASK] |= bit;
+            cardinality++;
+        }
+    }
+
+    @Override
+    public void clear(int cell) {
+        int x = cell % size;
+        int y = cell / size;
+        int key = tileIndex(x, y);
+        long[] tile = tile(key);
+        long bit = 1L << (x & TILE_MASK);
+        if (tile == null || (tile[y & TILE_MASK] & bit) == 0) return;
+
+        tile[y & TILE_MASK] &= ~bit;
+        cardinality--;
+        for (long row : tile) {
+            if (row != 0) return;
+        }
+        tiles.remove(key);
+        cachedTile = null;
+    }
+
+    @Override
+    public void clear() {
+        tiles.clear();
+        cardinality = 0;
+        cachedKey = -1;
+        cachedTile = null;
+    }
+
+    @Override
+    public int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    public void forEachSet(IntConsumer action) {
+        for (Map.Entry<Integer, long[]> entry : tiles.entrySet()) {
+            int firstX = entry.getKey() % tilesPerRow << TILE_SHIFT;
+            int firstY = entry.getKey() / tilesPerRow << TILE_SHIFT;
+            long[] tile = entry.getValue();
+            for (int row = 0; row < tile.length; row++) {
+                for (long bits = tile[row]; bits != 0; bits &= bits - 1) {
+                    action.accept((firstY + row) * size + firstX + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+    }
+
+    @Override
+    public long estimateFootprint() {
+        return 64 + (long) TILE_FOOTPRINT * tiles.size();
+    }
+
+    @Override
+    public SparseCellSet copy() {
+        SparseCellSet copy = new SparseCellSet(size);
+        for (Map.Entry<Integer, long[]> entry : tiles.entrySet()) {
+            copy.tiles.put(entry.getKey(), entry.getValue().clone());
+        }
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    @Override
+    public boolean canPlaceShip(int x, int y, int length, boolean horizontal) {
+        if (x < 0 || y < 0 || length <= 0) return false;
+        int endX = horizontal ? x + length - 1 : x;
+        int endY = horizontal ? y : y + length - 1;
+        if (endX >= size || endY >= size) return false;
+
+        for (int cy = Math.max(0, y - 1); cy <= Math.min(size - 1, endY + 1); cy++) {
+            for (int cx = Math.max(0, x - 1); cx <= Math.min(size - 1, endX + 1); cx++) {
+                if (get(cx, cy)) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void placeShip(int x, int y, int length, boolean horizontal) {
+        for (int i = 0; i < length; i++) {
+            set(horizontal ? x + i : x, horizontal ? y : y + i);
+        }
+    }
+
+    @Override
+    public void removeShip(int x, int y, int length, boolean horizontal) {
+        for (int i = 0; i < length; i++) {
+            clear(horizontal ? y * size + x + i : (y + i) * size + x);
+        }
+    }
+
+    private long[] tile(int key) {
+        if (key != cachedKey) {
+            cachedKey = key;
+            cachedTile = tiles.get(key);
+        }
+        return cachedTile;
+    }
+
+    private int tileIndex(int x, int y) {
+        return (y >>> TILE_SHIFT) * tilesPerRow + (x >>> TILE_SHIFT);
+    }
+}
@@ -0,0 +1,477 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Трансляция партии зрителям. Хаб слушает упакованные события модели и переводит их в дельты - по long
+// на запись: выстрел и его результат, потопленный корабль, новая партия, конец партии.
+// Поток модели только кладет дельту в кольцевой буфер и в журнал партии: без блокировок, ожидания
+// и аллокаций на событие, сколько бы ни было зрителей.
+//
+// Каждый зритель (Subscription) читает кольцо со своей позиции. Отставший на половину кольца
+// пропускает накопившееся и получает ключевой кадр - все записи партии к этому моменту: догнать
+// по кадру быстрее, чем по дельтам. С последнего кадра начинает и новый зритель.
+// Кадр публикуется в начале партии и раз в KEYFRAME_INTERVAL дельт; это ссылка на уже записанную
+// часть журнала, без копирования, а байты кадра кодируются один раз, первым зрителем, которому он нужен.
+// Ждущих зрителей будит общий поток оповещения хаба, а не поток модели; без зрителей он останавливается
+// и запускается снова с первым новым зрителем.
+//
+// Поток для зрителя (байты):
+//   запись       - тег (вид | сторона << 4 | горизонтальный << 5), varint x, varint y[, varint длина]
+//   ключевой кадр - KEYFRAME, varint число записей, записи
+//   KEEPALIVE    - один байт, если в партии ничего не происходит дольше KEEPALIVE_MILLIS: так отключившийся
+//                  зритель обнаруживается на записи и в простаивающей партии
+// Сторона PLAYER - стреляет игрок (по полю компьютера), COMPUTER - компьютер; у конца партии - победитель.
+// У новой партии x - размер поля; у потопленного корабля x, y - его начало, и есть длина.
+class SpectatorHub implements CompactEventListener, Closeable {
+    static final int MISS = 1;
+    static final int HIT = 2;
+    static final int SUNK = 3;
+    static final int NEW_GAME = 4;
+    static final int GAME_OVER = 5;
+    static final int KEEPALIVE = 14;
+    static final int KEYFRAME = 15;
+    static final int PLAYER = 0;
+    static final int COMPUTER = 1;
+
+    static final int DEFAULT_CAPACITY = 4096;
+    private static final int KEYFRAME_INTERVAL = 256;
+    // Тег и три varint по 3 байта
+    static final int MAX_RECORD_BYTES = 10;
+    private static final long NOTIFY_PERIOD_MILLIS = 20;
+    private static final long KEEPALIVE_MILLIS = 1000;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    private final AtomicLongArray ring;
+    private final int capacity;
+    private final AtomicLong published = new AtomicLong(); // сколько дельт записано в кольцо
+    private volatile Keyframe keyframe;
+
+    // Только поток модели
+    private long[] journal;
+    private int journalLength;
+
+    // ReentrantLock, а не synchronized: зрители сервера - виртуальные потоки
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition updated = lock.newCondition();
+    private final ReentrantLock attachLock = new ReentrantLock();
+    private GameModel model; // под attachLock
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder resyncs = new LongAdder();
+    private Thread notifier; // под attachLock; null, пока зрителей нет
+    private volatile boolean closed;
+
+    // Вызывается в потоке модели (на сервере - под блокировкой партии): журнал заполняется по ее текущему состоянию
+    public SpectatorHub(GameModel model) {
+        this(model, DEFAULT_CAPACITY);
+    }
+
+    public SpectatorHub(GameModel model, int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < 2 * KEYFRAME_INTERVAL) {
+            throw new IllegalArgumentException("Размер кольца - степень двойки не меньше " + 2 * KEYFRAME_INTERVAL
+                    + ": " + capacity);
+        }
+        this.capacity = capacity;
+        this.ring = new AtomicLongArray(capacity);
+        seed(model);
+        attach(model);
+    }
+
+    // Переключает хаб на другой экземпляр той же партии (поднятый из снимка); журнал продолжается
+    public void attach(GameModel model) {
+        attachLock.lock();
+        try {
+            detach();
+            this.model = model;
+            model.getEventManager().addCompactListener(this);
+        } finally {
+            attachLock.unlock();
+        }
+    }
+
+    // Отпускает модель, например перед выгрузкой партии на диск
+    public void detach() {
+        attachLock.lock();
+        try {
+            if (model != null) {
+                model.getEventManager().removeCompactListener(this);
+                model = null;
+            }
+        } finally {
+            attachLock.unlock();
+        }
+    }
+
+    @Override
+    public void onCompactEvent(Object source, long header, long payload) {
+        if (!(source instanceof GameModel game)) return;
+        int x = CompactEvent.x(header);
+        int y = CompactEvent.y(header);
+        switch (CompactEvent.kind(header)) {
+            case CompactEvent.PLACEMENT_STARTED -> startGame(game.getBoardSize());
+            case CompactEvent.PLAYER_MISSED -> publish(record(MISS, PLAYER, false, 0, x, y));
+            case CompactEvent.COMPUTER_MISSED -> publish(record(MISS, COMPUTER, false, 0, x, y));
+            case CompactEvent.PLAYER_HIT -> publishHit(PLAYER, game.getComputerFleet(), header, payload);
+            case CompactEvent.COMPUTER_HIT -> publishHit(COMPUTER, game.getPlayerFleet(), header, payload);
+            case CompactEvent.PLAYER_WON -> publish(record(GAME_OVER, PLAYER, false, 0, 0, 0));
+            case CompactEvent.COMPUTER_WON -> publish(record(GAME_OVER, COMPUTER, false, 0, 0, 0));
+            default -> {
+            }
+        }
+    }
+
+    // Новый зритель; первым он получит последний ключевой кадр
+    public Subscription subscribe() {
+        if (closed) {
+            throw new IllegalStateException("Трансляция закрыта");
+        }
+        // Сначала счетчик: остановку поток оповещения решает по нему под той же блокировкой
+        subscribers.incrementAndGet();
+        startNotifier();
+        return new Subscription();
+    }
+
+    // Транслирует партию в поток (сокет зрителя), пока зритель не отключится или трансляция не закроется.
+    // Запись в медленный сокет держит только этого зрителя; после нее он догонит остальных по ключевому кадру
+    public void stream(OutputStream out) throws IOException, InterruptedException {
+        try (Subscription subscription = subscribe()) {
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            while (!subscription.isClosed()) {
+                buffer.clear();
+                if (subscription.poll(buffer) > 0) {
+                    out.write(buffer.array(), 0, buffer.position());
+                    out.flush();
+                } else if (!subscription.await(KEEPALIVE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    // Закрытый зрителем сокет иначе заметили бы только на следующем ходе партии
+                    out.write(KEEPALIVE);
+                    out.flush();
+                }
+            }
+        }
+    }
+
+    public long getPublished() { return published.get(); }
+    public int getSubscriberCount() { return subscribers.get(); }
+    public long getResyncCount() { return resyncs.sum(); }
+
+    @Override
+    public void close() {
+        closed = true;
+        detach();
+        Thread thread;
+        attachLock.lock();
+        try {
+            thread = notifier;
+        } finally {
+            attachLock.unlock();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        signalSubscribers();
+    }
+
+    private void seed(GameModel game) {
+        startGame(game.getBoardSize());
+        CellSet playerShots = game.getPlayerShotBits();
+        CellSet computerShots = game.getComputerShotBits();
+        if (game.getMoveCount() == playerShots.cardinality() + computerShots.cardinality()) {
+            // История ходов полная: она проигрывается по правилу очереди - после попадания стреляет тот же
+            int side = PLAYER;
+            int[][] hits = {new int[game.getComputerFleet().getShipCount()], new int[game.getPlayerFleet().getShipCount()]};
+            for (int i = 0; i < game.getMoveCount(); i++) {
+                int cell = game.getMove(i);
+                Fleet fleet = side == PLAYER ? game.getComputerFleet() : game.getPlayerFleet();
+                CellSet ships = side == PLAYER ? game.getComputerShips() : game.getPlayerShips();
+                int x = cell % game.getBoardSize();
+                int y = cell / game.getBoardSize();
+                if (ships.get(cell)) {
+                    publish(record(HIT, side, false, 0, x, y));
+                    int id = fleet.shipAt(cell);
+                    if (++hits[side][id] == fleet.getShipLength(id)) {
+                        publish(sunk(side, fleet, id));
+                    }
+                } else {
+                    publish(record(MISS, side, false, 0, x, y));
+                    side ^= 1;
+                }
+            }
+        } else {
+            // Снимок без истории бывает только у плотного поля, и его можно просто обойти
+            seedShots(PLAYER, game.getBoardSize(), playerShots, game.getComputerShips(), game.getComputerFleet());
+            seedShots(COMPUTER, game.getBoardSize(), computerShots, game.getPlayerShips(), game.getPlayerFleet());
+        }
+        if (game.getPlayerScore() == game.getTotalShipCells()) {
+            publish(record(GAME_OVER, PLAYER, false, 0, 0, 0));
+        } else if (game.getComputerScore() == game.getTotalShipCells()) {
+            publish(record(GAME_OVER, COMPUTER, false, 0, 0, 0));
+        }
+        publishKeyframe();
+    }
+
+    private void seedShots(int side, int boardSize, CellSet shots, CellSet ships, Fleet fleet) {
+        for (int cell = 0; cell < boardSize * boardSize; cell++) {
+            if (shots.get(cell)) {
+                publish(record(ships.get(cell) ? HIT : MISS, side, false, 0, cell % boardSize, cell / boardSize));
+            }
+        }
+        for (int id = 0; id < fleet.getShipCount(); id++) {
+            if (fleet.isSunk(id)) {
+                publish(sunk(side, fleet, id));
+            }
+        }
+    }
+
+    private void publishHit(int side, Fleet fleet, long header, long payload) {
+        publish(record(HIT, side, false, 0, CompactEvent.x(header), CompactEvent.y(header)));
+        if (CompactEvent.hasFlag(header, CompactEvent.DESTROYED)) {
+            publish(sunk(side, fleet, CompactEvent.high(payload)));
+        }
+    }
+
+    // Журнал каждой партии - новый массив: старые ключевые кадры ссылаются на прежний
+    private void startGame(int boardSize) {
+        journal = new long[64];
+        journalLength = 0;
+        publish(record(NEW_GAME, PLAYER, false, 0, boardSize, 0));
+        publishKeyframe();
+    }
+
+    private void publish(long record) {
+        long sequence = published.get();
+        ring.set((int) sequence & (capacity - 1), record);
+        if (journalLength == journal.length) {
+            journal = Arrays.copyOf(journal, journalLength * 2);
+        }
+        journal[journalLength++] = record;
+        published.set(sequence + 1);
+        Keyframe frame = keyframe;
+        if (frame != null && sequence + 1 - frame.sequence >= KEYFRAME_INTERVAL) {
+            publishKeyframe();
+        }
+    }
+
+    private void publishKeyframe() {
+        keyframe = new Keyframe(published.get(), journal, journalLength);
+    }
+
+    private void startNotifier() {
+        attachLock.lock();
+        try {
+            if (notifier == null) {
+                notifier = Thread.ofVirtual().name("spectators").start(this::notifySubscribers);
+            }
+        } finally {
+            attachLock.unlock();
+        }
+    }
+
+    private void notifySubscribers() {
+        long notified = published.get();
+        while (!closed) {
+            try {
+                Thread.sleep(NOTIFY_PERIOD_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (subscribers.get() == 0 && stopNotifier()) return;
+            long current = published.get();
+            if (current != notified && subscribers.get() > 0) {
+                notified = current;
+                signalSubscribers();
+            }
+        }
+    }
+
+    // Поток оповещения уходит, если зрителей так и нет; subscribe запустит новый
+    private boolean stopNotifier() {
+        attachLock.lock();
+        try {
+            if (subscribers.get() > 0) return false;
+            notifier = null;
+            return true;
+        } finally {
+            attachLock.unlock();
+        }
+    }
+
+    private void signalSubscribers() {
+        lock.lock();
+        try {
+            updated.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static long record(int kind, int side, boolean horizontal, int length, int x, int y) {
+        return kind | side << 4 | (horizontal ? 1 << 5 : 0) | (length & 0xFF) << 8
+                | (long) (x & 0xFFFF) << 16 | (long) (y & 0xFFFF) << 32;
+    }
+
+    private static long sunk(int side, Fleet fleet, int id) {
+        return record(SUNK, side, fleet.isShipHorizontal(id), fleet.getShipLength(id), fleet.getShipX(id), fleet.getShipY(id));
+    }
+
+    static int kind(long record) { return (int) record & 0xF; }
+    static int side(long record) { return (int) (record >>> 4) & 1; }
+    static boolean isHorizontal(long record) { return (record & 1 << 5) != 0; }
+    static int length(long record) { return (int) (record >>> 8) & 0xFF; }
+    static int x(long record) { return (int) (record >>> 16) & 0xFFFF; }
+    static int y(long record) { return (int) (record >>> 32) & 0xFFFF; }
+
+    static void writeRecord(ByteBuffer out, long record) {
+        out.put((byte) (record & 0x3F));
+        writeVarint(out, x(record));
+        writeVarint(out, y(record));
+        if (kind(record) == SUNK) {
+            writeVarint(out, length(record));
+        }
+    }
+
+    // Обратное writeRecord; тег KEYFRAME разбирается отдельно
+    static long readRecord(ByteBuffer in) {
+        int tag = in.get();
+        int x = readVarint(in);
+        int y = readVarint(in);
+        int length = (tag & 0xF) == SUNK ? readVarint(in) : 0;
+        return record(tag & 0xF, tag >>> 4 & 1, (tag & 1 << 5) != 0, length, x, y);
+    }
+
+    static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    // Состояние партии к моменту sequence: первые count записей журнала
+    private static final class Keyframe {
+        final long sequence;
+        final long[] records;
+        final int count;
+        private volatile byte[] bytes;
+
+        Keyframe(long sequence, long[] records, int count) {
+            this.sequence = sequence;
+            this.records = records;
+            this.count = count;
+        }
+
+        byte[] bytes() {
+            byte[] encoded = bytes;
+            if (encoded == null) {
+                ByteBuffer buffer = ByteBuffer.allocate(6 + count * MAX_RECORD_BYTES);
+                buffer.put((byte) KEYFRAME);
+                writeVarint(buffer, count);
+                for (int i = 0; i < count; i++) {
+                    writeRecord(buffer, records[i]);
+                }
+                encoded = Arrays.copyOf(buffer.array(), buffer.position());
+                bytes = encoded;
+            }
+            return encoded;
+        }
+    }
+
+    // Зритель: своя позиция в кольце; не потокобезопасен, читает его один поток
+    final class Subscription implements Closeable {
+        private long cursor;
+        private byte[] pending; // ключевой кадр, который еще не отдан целиком
+        private int pendingOffset;
+        private long resyncCount;
+        private boolean unsubscribed;
+
+        private Subscription() {
+            startFromKeyframe();
+        }
+
+        // Дописывает в out поток с позиции зрителя, сколько поместится; возвращает число байт
+        public int poll(ByteBuffer out) {
+            int start = out.position();
+            while (!isClosed()) {
+                if (pending != null) {
+                    int length = Math.min(out.remaining(), pending.length - pendingOffset);
+                    out.put(pending, pendingOffset, length);
+                    pendingOffset += length;
+                    if (pendingOffset < pending.length) break;
+                    pending = null;
+                }
+                long available = published.get();
+                if (available - cursor > capacity / 2) {
+                    resync();
+                    continue;
+                }
+                if (available == cursor || out.remaining() < MAX_RECORD_BYTES) break;
+                long record = ring.get((int) cursor & (capacity - 1));
+                // Пока читали, продюсер мог записать поверх
+                if (published.get() - cursor >= capacity) {
+                    resync();
+                    continue;
+                }
+                writeRecord(out, record);
+                cursor++;
+            }
+            return out.position() - start;
+        }
+
+        // Ждет, пока для зрителя появится что-то новое; false - по таймауту
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while (pending == null && published.get() == cursor && !isClosed()) {
+                    if (nanos <= 0) return false;
+                    nanos = updated.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Сколько дельт зритель еще не прочитал
+        public long getLag() { return published.get() - cursor; }
+        public long getResyncCount() { return resyncCount; }
+        public boolean isClosed() { return unsubscribed || closed; }
+
+        @Override
+        public void close() {
+            if (!unsubscribed) {
+                unsubscribed = true;
+                subscribers.decrementAndGet();
+            }
+        }
+
+        private void resync() {
+            resyncCount++;
+            resyncs.increment();
+            startFromKeyframe();
+        }
+
+        private void startFromKeyframe() {
+            Keyframe frame = keyframe;
+            pending = frame.bytes();
+            pendingOffset = 0;
+            cursor = frame.sequence;
+        }
+    }
+}
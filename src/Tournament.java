@@ -0,0 +1,179 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Круговой турнир стратегий ИИ: каждая пара играет между собой партии на всех ядрах (GameSimulator),
+// по итогам - проценты побед, среднее число выстрелов до победы и рейтинг Эло с 95% интервалом.
+// С тем же зерном турнир повторяется в точности при любом числе потоков: стратегии реестра по умолчанию
+// не ограничены по времени (ShotStrategy.setTimeBudget задает ограничение только окно игры):
+//   java -Djava.awt.headless=true Tournament [партий на пару] [потоков] [размер поля] [стратегии через запятую] [зерно]
+class Tournament {
+    private static final double ELO_BASE = 1500;
+    private static final double ELO_SCALE = 400 / Math.log(10);
+    private static final double Z_95 = 1.96;
+    private static final int RATING_ITERATIONS = 10_000;
+
+    private final String[] strategies;
+    private final long[][] wins;  // [i][j] - побед i над j
+    private final long[][] games; // [i][j] - партий между i и j
+    private final long[] winnerShots;
+    private final long[] totalWins;
+
+    public Tournament(String[] strategies) {
+        for (String strategy : strategies) {
+            if (!ShotStrategies.contains(strategy)) {
+                throw new IllegalArgumentException("Неизвестная стратегия: " + strategy);
+            }
+        }
+        this.strategies = strategies.clone();
+        int n = strategies.length;
+        wins = new long[n][n];
+        games = new long[n][n];
+        winnerShots = new long[n];
+        totalWins = new long[n];
+    }
+
+    public static void main(String[] args) {
+        int gamesPerPair = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        GameConfig config = args.length > 2 ? GameConfig.classic(Integer.parseInt(args[2])) : GameConfig.CLASSIC;
+        String[] strategies = args.length > 3 ? args[3].split(",") : ShotStrategies.names();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : ThreadLocalRandom.current().nextLong();
+
+        Tournament tournament = new Tournament(strategies);
+        GameSimulator simulator = new GameSimulator(threads, config);
+        System.out.printf("Стратегий: %d, партий на пару: %d, потоков: %d, поле: %s, зерно: %d%n",
+                strategies.length, gamesPerPair, threads, config, seed);
+        long start = System.nanoTime();
+        try {
+            tournament.play(simulator, gamesPerPair, seed);
+        } finally {
+            simulator.shutdown();
+        }
+        System.out.printf("Сыграно за %.1f сек%n%n", (System.nanoTime() - start) / 1e9);
+        tournament.print();
+    }
+
+    public void play(GameSimulator simulator, int gamesPerPair, long seed) {
+        int pair = 0;
+        for (int i = 0; i < strategies.length; i++) {
+            for (int j = i + 1; j < strategies.length; j++) {
+                long pairSeed = GameRandom.streamSeed(seed, pair++);
+                GameSimulator.SimulationStats stats = simulator.run(strategies[i], strategies[j], gamesPerPair, pairSeed);
+                record(i, j, stats);
+            }
+        }
+    }
+
+    private void record(int i, int j, GameSimulator.SimulationStats stats) {
+        wins[i][j] += stats.wins;
+        wins[j][i] += stats.games - stats.wins;
+        games[i][j] += stats.games;
+        games[j][i] += stats.games;
+        totalWins[i] += stats.wins;
+        totalWins[j] += stats.games - stats.wins;
+        winnerShots[i] += stats.winnerShots;
+        winnerShots[j] += stats.opponentWinnerShots;
+    }
+
+    // Рейтинги по модели Брэдли-Терри (вероятность победы i над j = g_i / (g_i + g_j)), итерациями MM.
+    // К каждой паре добавляется по половине победы в обе стороны, иначе у непобедимой стратегии рейтинг бесконечен
+    public double[] ratings() {
+        int n = strategies.length;
+        double[] gamma = new double[n];
+        Arrays.fill(gamma, 1);
+        for (int iteration = 0; iteration < RATING_ITERATIONS; iteration++) {
+            double change = 0;
+            double logSum = 0;
+            for (int i = 0; i < n; i++) {
+                double won = 0;
+                double denominator = 0;
+                for (int j = 0; j < n; j++) {
+                    if (j == i || games[i][j] == 0) continue;
+                    won += wins[i][j] + 0.5;
+                    denominator += (games[i][j] + 1) / (gamma[i] + gamma[j]);
+                }
+                double updated = denominator == 0 ? 1 : won / denominator;
+                change = Math.max(change, Math.abs(Math.log(updated / gamma[i])));
+                gamma[i] = updated;
+                logSum += Math.log(updated);
+            }
+            // Средний рейтинг держится на ELO_BASE
+            double mean = Math.exp(logSum / n);
+            for (int i = 0; i < n; i++) {
+                gamma[i] /= mean;
+            }
+            if (change < 1e-12) break;
+        }
+
+        double[] elo = new double[n];
+        for (int i = 0; i < n; i++) {
+            elo[i] = ELO_BASE + ELO_SCALE * Math.log(gamma[i]);
+        }
+        return elo;
+    }
+
+    // Полуширина 95% интервала рейтинга по информации Фишера (без учета связи с рейтингами соперников)
+    public double[] ratingErrors(double[] elo) {
+        int n = strategies.length;
+        double[] errors = new double[n];
+        for (int i = 0; i < n; i++) {
+            double information = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i || games[i][j] == 0) continue;
+                double p = 1 / (1 + Math.exp((elo[j] - elo[i]) / ELO_SCALE));
+                information += (games[i][j] + 1) * p * (1 - p);
+            }
+            errors[i] = information == 0 ? Double.POSITIVE_INFINITY : Z_95 * ELO_SCALE / Math.sqrt(information);
+        }
+        return errors;
+    }
+
+    public void print() {
+        int n = strategies.length;
+        System.out.println("Процент побед строки над столбцом [95% интервал Уилсона]:");
+        System.out.printf("%-10s", "");
+        for (String strategy : strategies) {
+            System.out.printf(" %22s", strategy);
+        }
+        System.out.println();
+        for (int i = 0; i < n; i++) {
+            System.out.printf("%-10s", strategies[i]);
+            for (int j = 0; j < n; j++) {
+                if (i == j || games[i][j] == 0) {
+                    System.out.printf(" %22s", "-");
+                    continue;
+                }
+                // Интервал Уилсона не вырождается в точку при 0% и 100% побед
+                double played = games[i][j];
+                double p = wins[i][j] / played;
+                double z2 = Z_95 * Z_95;
+                double center = (p + z2 / (2 * played)) / (1 + z2 / played);
+                double margin = Z_95 * Math.sqrt(p * (1 - p) / played + z2 / (4 * played * played)) / (1 + z2 / played);
+                // При 0% и 100% границы отходят от 0 и 1 только на ошибку округления, и печаталось бы "-0.0"
+                double low = Math.max(0, center - margin);
+                double high = Math.min(1, center + margin);
+                System.out.printf(" %6.2f [%5.1f; %5.1f]", p * 100, low * 100, high * 100);
+            }
+            System.out.println();
+        }
+
+        double[] elo = ratings();
+        double[] errors = ratingErrors(elo);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(elo[b], elo[a]));
+
+        System.out.printf("%n%-10s %10s %10s %14s %16s%n", "Стратегия", "Партий", "Побед, %", "Выстр. до поб.", "Эло");
+        for (int i : order) {
+            long played = 0;
+            for (int j = 0; j < n; j++) {
+                played += games[i][j];
+            }
+            System.out.printf("%-10s %10d %10.2f %14.2f %9.0f ± %4.0f%n", strategies[i], played,
+                    played == 0 ? 0 : 100.0 * totalWins[i] / played,
+                    totalWins[i] == 0 ? 0 : (double) winnerShots[i] / totalWins[i], elo[i], errors[i]);
+        }
+    }
+}